@@ -16,51 +16,200 @@
  */
 package ai.koryki.antlr;
 
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
 import org.antlr.v4.runtime.Lexer;
 import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
-public abstract class AbstractReader<L extends Lexer, P extends Parser, C extends ParseTree> {
+public abstract class AbstractReader<L extends Lexer, P extends Parser, C extends ParseTree> implements AutoCloseable {
 
+    private PredictionStrategy strategy = PredictionStrategy.LL;
+    private PipelineMetrics metrics = PipelineMetrics.NOOP;
+    private ParseBudget budget = ParseBudget.UNLIMITED;
+    private String[] comments;
+    private BufferedTokenStream commentTokens;
+    private boolean buildParseTree = true;
+    private final List<ParseTreeListener> parseListeners = new ArrayList<>();
 
     public abstract L getLexer() ;
     public abstract P getParser();
     public abstract BufferedTokenStream getTokens();
     public abstract List<Interval> getPanic();
+
+    /**
+     * @return diagnostics of all syntax errors, null before parsing
+     */
+    public abstract List<Diagnostic> getDiagnostics();
     public abstract C getCtx();
 
     public int getTokenCount() {
         return getTokens() != null ? getTokens().size() : -1;
     }
 
+    /**
+     * Run the start rule with the configured {@link PredictionStrategy}.
+     * With TWO_STAGE the first attempt uses SLL prediction and bails out on the first error,
+     * only then the input is parsed again with full LL prediction and error reporting.
+     */
+    protected <T extends ParserRuleContext> T parse(P parser, MsgErrorListener listener, Function<P, T> rule, ParseCounter counter) {
+
+        parser.removeErrorListeners();
+        parser.setBuildParseTree(buildParseTree);
+        for (ParseTreeListener l : parseListeners) {
+            parser.addParseListener(l);
+        }
+        if (strategy == PredictionStrategy.TWO_STAGE) {
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(new BailErrorStrategy());
+            try {
+                T ctx = rule.apply(parser);
+                counter.sll();
+                return ctx;
+            } catch (ParseCancellationException e) {
+                // rewind token stream and parser state
+                parser.reset();
+                counter.fallback();
+            }
+        }
+
+        boolean sll = strategy == PredictionStrategy.SLL;
+        parser.getInterpreter().setPredictionMode(sll ? PredictionMode.SLL : PredictionMode.LL);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.addErrorListener(listener);
+        T ctx = rule.apply(parser);
+        if (sll) {
+            counter.sll();
+        } else {
+            counter.ll();
+        }
+        return ctx;
+    }
+
+    public PredictionStrategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(PredictionStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public boolean isBuildParseTree() {
+        return buildParseTree;
+    }
+
+    /**
+     * Without a parse tree, rule contexts are still created and handed to parse listeners,
+     * but they are not linked to their parents.
+     */
+    public void setBuildParseTree(boolean buildParseTree) {
+        this.buildParseTree = buildParseTree;
+    }
+
+    /**
+     * Listeners are notified while parsing. With {@link PredictionStrategy#TWO_STAGE} a listener
+     * may see the query twice: a rule entered again after the SLL attempt failed starts over.
+     */
+    public void addParseListener(ParseTreeListener listener) {
+        parseListeners.add(listener);
+    }
+
+    public ParseBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Limit the cost of this reader, must be set before the input is lexed.
+     */
+    public void setBudget(ParseBudget budget) {
+        this.budget = budget != null ? budget : ParseBudget.UNLIMITED;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics != null ? metrics : PipelineMetrics.NOOP;
+    }
+
+    /**
+     * Release pooled resources, nothing to do for readers owning their lexer and parser.
+     */
+    @Override
+    public void close() {
+    }
+
     public String getComment(ParseTree node) {
-        List<Token> hiddenTokens =
-                getTokens().getHiddenTokensToLeft(node.getSourceInterval().a);
+        return getComment(node.getSourceInterval().a);
+    }
 
-        StringBuilder b = new StringBuilder();
-        if (hiddenTokens != null) {
+    /**
+     * @return comments in front of the token, null if there are none
+     */
+    public String getComment(int tokenIndex) {
+        String[] index = commentIndex();
+        if (tokenIndex < 0 || tokenIndex >= index.length) {
+            throw new IndexOutOfBoundsException(tokenIndex + " not in 0.." + (index.length - 1));
+        }
+        return index[tokenIndex];
+    }
 
-            for (Token t : hiddenTokens) {
+    /**
+     * Trimmed comments in front of every token, built once per token stream.
+     * Tokens behind the same run of hidden tokens share one string.
+     */
+    private String[] commentIndex() {
+
+        BufferedTokenStream tokens = getTokens();
+        tokens.fill();
+        if (comments != null && commentTokens == tokens && comments.length == tokens.size()) {
+            return comments;
+        }
 
+        String[] index = new String[tokens.size()];
+        StringBuilder b = new StringBuilder();
+        String run = null;
+        boolean changed = false;
+        for (int i = 0; i < index.length; i++) {
+            if (changed) {
+                run = b.toString();
+                changed = false;
+            }
+            index[i] = run;
+
+            Token t = tokens.get(i);
+            if (t.getChannel() == Token.DEFAULT_CHANNEL) {
+                b.setLength(0);
+                run = null;
+            } else {
                 String c = trimComment(t.getText());
-                if (c.isEmpty()) {
-                    continue;
-                }
-                if (b.length() > 0) {
-                    b.append(System.lineSeparator());
+                if (!c.isEmpty()) {
+                    if (b.length() > 0) {
+                        b.append(System.lineSeparator());
+                    }
+                    b.append(c);
+                    changed = true;
                 }
-                b.append(c);
             }
         }
-        return b.length() > 0 ? b.toString() : null;
+        comments = index;
+        commentTokens = tokens;
+        return index;
     }
 
     private String trimComment(String c) {
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read a file of queries separated by semicolons, one query at a time.
+ * <p>
+ * Semicolons inside strings and comments don't separate queries. Only the text of the current
+ * query is held in memory, splitting is sequential, parsing happens per entry and
+ * runs in parallel when the stream is parallel. A comment in front of a query becomes its description.
+ * The reader can be consumed only once.
+ */
+public class BatchReader<C extends ParseTree> implements AutoCloseable {
+
+    private static final int NORMAL = 0;
+    private static final int DQ_STRING = 1;
+    private static final int SQ_STRING = 2;
+    private static final int COMMENT = 3;
+    private static final int LINE_COMMENT = 4;
+
+    private final BufferedReader in;
+    private final Function<CharStream, ? extends AbstractReader<?, ?, C>> reader;
+
+    private int line = 1;
+    private int index;
+    private boolean eof;
+
+    /**
+     * @param in     queries separated by ';'
+     * @param reader creates the reader for the text of one query
+     */
+    public BatchReader(Reader in, Function<CharStream, ? extends AbstractReader<?, ?, C>> reader) {
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        this.reader = reader;
+    }
+
+    /**
+     * @param parallel parse entries in parallel, entries keep their index but may arrive out of order
+     */
+    public Stream<Entry<C>> stream(boolean parallel) {
+        return StreamSupport.stream(new Splitter(), parallel).map(this::parse);
+    }
+
+    public Iterator<Entry<C>> iterator() {
+        return stream(false).iterator();
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Entry<C> parse(Chunk chunk) {
+
+        try (AbstractReader<?, ?, C> r = reader.apply(CharStreams.fromString(chunk.text))) {
+            C ctx = r.getCtx();
+            List<Interval> panic = r.getPanic() != null ? r.getPanic() : Collections.<Interval>emptyList();
+            return new Entry<>(chunk, ctx, r.getComment(ctx), panic, null);
+        } catch (RuntimeException e) {
+            return new Entry<>(chunk, null, null, Collections.<Interval>emptyList(), e);
+        }
+    }
+
+    /**
+     * @return text of the next query or null at end of input
+     */
+    private synchronized Chunk next() throws IOException {
+
+        while (!eof) {
+            StringBuilder b = new StringBuilder();
+            int start = line;
+            int state = NORMAL;
+            int prev = 0;
+            boolean significant = false;
+
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c == '\n') {
+                    line++;
+                }
+                if (state == NORMAL && c == ';') {
+                    break;
+                }
+                b.append((char) c);
+
+                switch (state) {
+                    case NORMAL:
+                        if (c == '"') {
+                            state = DQ_STRING;
+                        } else if (c == '\'') {
+                            state = SQ_STRING;
+                        } else if (prev == '/' && c == '*') {
+                            state = COMMENT;
+                            c = 0;
+                        } else if (prev == '/' && c == '/') {
+                            state = LINE_COMMENT;
+                        }
+                        if (state != COMMENT && state != LINE_COMMENT && c != '/' && !Character.isWhitespace(c)) {
+                            significant = true;
+                        }
+                        break;
+                    case DQ_STRING:
+                        if (c == '"' && prev != '\\') {
+                            state = NORMAL;
+                        } else if (c == '"') {
+                            c = 0;
+                        }
+                        break;
+                    case SQ_STRING:
+                        if (c == '\'' && prev != '\\') {
+                            state = NORMAL;
+                        } else if (c == '\'') {
+                            c = 0;
+                        }
+                        break;
+                    case COMMENT:
+                        if (prev == '*' && c == '/') {
+                            state = NORMAL;
+                            c = 0;
+                        }
+                        break;
+                    default:
+                        if (c == '\n') {
+                            state = NORMAL;
+                        }
+                }
+                prev = c;
+            }
+            if (c == -1) {
+                eof = true;
+                // a lone slash was not the start of a comment
+                significant |= prev == '/' && state == NORMAL;
+            }
+            if (significant) {
+                return new Chunk(index++, start, b.toString());
+            }
+        }
+        return null;
+    }
+
+    private class Splitter extends Spliterators.AbstractSpliterator<Chunk> {
+
+        Splitter() {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Chunk> action) {
+            try {
+                Chunk chunk = next();
+                if (chunk == null) {
+                    return false;
+                }
+                action.accept(chunk);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class Chunk {
+
+        private final int index;
+        private final int line;
+        private final String text;
+
+        Chunk(int index, int line, String text) {
+            this.index = index;
+            this.line = line;
+            this.text = text;
+        }
+    }
+
+    public static class Entry<C extends ParseTree> {
+
+        private final int index;
+        private final int line;
+        private final String query;
+        private final C ctx;
+        private final String description;
+        private final List<Interval> panic;
+        private final RuntimeException error;
+
+        private Entry(Chunk chunk, C ctx, String description, List<Interval> panic, RuntimeException error) {
+            this.index = chunk.index;
+            this.line = chunk.line;
+            this.query = chunk.text;
+            this.ctx = ctx;
+            this.description = description;
+            this.panic = panic;
+            this.error = error;
+        }
+
+        /**
+         * @return position of the query in the file, starting with 0
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return line in the file where the query text starts, positions of panic and error are relative to it
+         */
+        public int getLine() {
+            return line;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        /**
+         * @return parse tree or null, when reading failed with an exception
+         */
+        public C getCtx() {
+            return ctx;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public List<Interval> getPanic() {
+            return panic;
+        }
+
+        public RuntimeException getError() {
+            return error;
+        }
+
+        public boolean isValid() {
+            return error == null && panic.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return index + ":" + line + (isValid() ? " ok" : error != null ? " " + error.getMessage() : " " + panic.size() + " errors");
+        }
+    }
+}
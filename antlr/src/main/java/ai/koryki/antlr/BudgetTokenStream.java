@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+
+/**
+ * Token stream enforcing the token and time limits of a {@link ParseBudget}.
+ * Tokens are counted while the lexer fetches them, time is checked on fetch, on consume
+ * and every few thousand lookaheads, so a long prediction is stopped too.
+ */
+class BudgetTokenStream extends CommonTokenStream {
+
+    private static final int LOOKAHEAD_CHECK = 0xFFF;
+
+    private final int maxTokens;
+    private final long maxMillis;
+    private final long start;
+    private final long deadline;
+    private int lookahead;
+
+    BudgetTokenStream(TokenSource source, ParseBudget budget) {
+        super(source);
+        this.maxTokens = budget.getMaxTokens();
+        this.maxMillis = budget.getMaxMillis();
+        this.start = System.nanoTime();
+        this.deadline = maxMillis > 0 ? start + maxMillis * 1_000_000 : 0;
+    }
+
+    @Override
+    protected int fetch(int n) {
+        if (maxTokens > 0) {
+            // fetch at most one token above the limit
+            n = Math.max(1, Math.min(n, maxTokens + 1 - tokens.size()));
+        }
+        int fetched = super.fetch(n);
+        if (fetched > 0) {
+            if (maxTokens > 0 && tokens.size() > maxTokens) {
+                throw new ParseBudgetException(ParseBudgetException.Budget.TOKENS, maxTokens, tokens.size())
+                        .at(tokens.get(tokens.size() - 1));
+            }
+            checkTime();
+        }
+        return fetched;
+    }
+
+    @Override
+    public void consume() {
+        super.consume();
+        checkTime();
+    }
+
+    @Override
+    public Token LT(int k) {
+        if ((++lookahead & LOOKAHEAD_CHECK) == 0) {
+            checkTime();
+        }
+        return super.LT(k);
+    }
+
+    private void checkTime() {
+        if (deadline != 0) {
+            long now = System.nanoTime();
+            if (now - deadline > 0) {
+                Token t = tokens.isEmpty() ? null : tokens.get(p >= 0 && p < tokens.size() ? p : tokens.size() - 1);
+                throw new ParseBudgetException(ParseBudgetException.Budget.TIME, maxMillis, (now - start) / 1_000_000).at(t);
+            }
+        }
+    }
+}
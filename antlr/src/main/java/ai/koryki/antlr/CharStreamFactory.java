@@ -0,0 +1,130 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import org.antlr.v4.runtime.CodePointBuffer;
+import org.antlr.v4.runtime.CodePointCharStream;
+import org.antlr.v4.runtime.IntStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Build char streams from UTF-8 bytes without Reader and intermediate Strings.
+ * <p>
+ * Pure ASCII input on a heap buffer is wrapped as is, a memory-mapped ASCII file is copied once.
+ * Other input is decoded in chunks through one reused char buffer into the code point buffer of the stream.
+ */
+public class CharStreamFactory {
+
+    private static final int CHUNK = 8192;
+
+    private CharStreamFactory() {
+    }
+
+    public static CodePointCharStream fromBytes(byte[] bytes) {
+        return fromBytes(bytes, IntStream.UNKNOWN_SOURCE_NAME);
+    }
+
+    public static CodePointCharStream fromBytes(byte[] bytes, String sourceName) {
+        return fromBuffer(ByteBuffer.wrap(bytes), sourceName);
+    }
+
+    /**
+     * @param buffer UTF-8 bytes between position and limit, the buffer must not change while the stream is in use
+     */
+    public static CodePointCharStream fromBuffer(ByteBuffer buffer, String sourceName) {
+
+        ByteBuffer b = buffer.slice();
+        if (isAscii(b)) {
+            if (!b.hasArray()) {
+                // the byte stream of the runtime needs an array
+                ByteBuffer copy = ByteBuffer.allocate(b.remaining());
+                copy.put(b.duplicate());
+                copy.flip();
+                b = copy;
+            }
+            return CodePointCharStream.fromBuffer(CodePointBuffer.withBytes(b), sourceName);
+        }
+
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // UTF-8 has at least one byte per code point
+        CodePointBuffer.Builder builder = CodePointBuffer.builder(b.remaining());
+        CharBuffer chars = CharBuffer.allocate(Math.min(CHUNK, b.remaining() + 1));
+        CoderResult result;
+        do {
+            result = decoder.decode(b, chars, true);
+            append(builder, chars);
+        } while (result.isOverflow());
+        do {
+            result = decoder.flush(chars);
+            append(builder, chars);
+        } while (result.isOverflow());
+        return CodePointCharStream.fromBuffer(builder.build(), sourceName);
+    }
+
+    private static void append(CodePointBuffer.Builder builder, CharBuffer chars) {
+        chars.flip();
+        builder.append(chars);
+        // keeps a high surrogate whose low surrogate is in the next chunk
+        chars.compact();
+    }
+
+    /**
+     * Map the file into memory and build the stream from it.
+     */
+    public static CodePointCharStream fromFile(Path path) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("file too large: " + path + ", " + size + " bytes");
+            }
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return fromBuffer(mapped, path.toString());
+        }
+    }
+
+    private static boolean isAscii(ByteBuffer b) {
+        if (b.hasArray()) {
+            byte[] a = b.array();
+            int end = b.arrayOffset() + b.position() + b.remaining();
+            for (int i = b.arrayOffset() + b.position(); i < end; i++) {
+                if (a[i] < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = b.position(); i < b.limit(); i++) {
+            if (b.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.dfa.DFA;
+
+import java.util.Arrays;
+
+/**
+ * State counts of the DFA cache shared by all lexer and parser instances of one grammar.
+ */
+public class DfaSnapshot {
+
+    private final int lexerStates;
+    private final int[] parserStates;
+
+    private DfaSnapshot(int lexerStates, int[] parserStates) {
+        this.lexerStates = lexerStates;
+        this.parserStates = parserStates;
+    }
+
+    public static DfaSnapshot of(Lexer lexer, Parser parser) {
+        int[] parserStates = count(parser.getInterpreter().decisionToDFA);
+        int lexerStates = Arrays.stream(count(lexer.getInterpreter().decisionToDFA)).sum();
+        return new DfaSnapshot(lexerStates, parserStates);
+    }
+
+    private static int[] count(DFA[] decisionToDFA) {
+        int[] states = new int[decisionToDFA.length];
+        for (int i = 0; i < decisionToDFA.length; i++) {
+            DFA dfa = decisionToDFA[i];
+            synchronized (dfa.states) {
+                states[i] = dfa.states.size();
+            }
+        }
+        return states;
+    }
+
+    public int getLexerStates() {
+        return lexerStates;
+    }
+
+    public int getParserStates() {
+        return Arrays.stream(parserStates).sum();
+    }
+
+    public int getDecisions() {
+        return parserStates.length;
+    }
+
+    public int getParserStates(int decision) {
+        return parserStates[decision];
+    }
+
+    /**
+     * @return number of lexer and parser states added since the earlier snapshot
+     */
+    public int added(DfaSnapshot earlier) {
+        return getLexerStates() - earlier.getLexerStates() + getParserStates() - earlier.getParserStates();
+    }
+
+    /**
+     * @return true, if no state was added since the earlier snapshot
+     */
+    public boolean isFrozen(DfaSnapshot earlier) {
+        return added(earlier) == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "lexer states: " + getLexerStates() + ", parser states: " + getParserStates() + ", decisions: " + getDecisions();
+    }
+}
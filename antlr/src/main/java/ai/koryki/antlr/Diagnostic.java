@@ -0,0 +1,123 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Machine readable description of one problem in a query, from lexing up to SQL translation.
+ * The range is null when the problem isn't tied to a source position, e.g. for beans built without a parser.
+ */
+public class Diagnostic {
+
+    public enum Code {
+        LEXER,
+        SYNTAX,
+        BUDGET,
+        UNKNOWN_TABLE,
+        UNKNOWN_ALIAS,
+        UNKNOWN_COLUMN,
+        UNKNOWN_LINK,
+        NO_RELATION,
+        AMBIGUOUS_RELATION,
+        OUTER_JOIN_FILTER,
+        INTERNAL
+    }
+
+    private Code code;
+    private String message;
+    private Range range;
+    private String offending;
+    private List<String> expected = new ArrayList<>();
+    private List<String> fixes = new ArrayList<>();
+
+    public Diagnostic(Code code, String message) {
+        this(code, message, null);
+    }
+
+    public Diagnostic(Code code, String message, Range range) {
+        this.code = code;
+        this.message = message;
+        this.range = range;
+    }
+
+    public Code getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Range getRange() {
+        return range;
+    }
+
+    public void setRange(Range range) {
+        this.range = range;
+    }
+
+    /**
+     * @return text of the offending token or name
+     */
+    public String getOffending() {
+        return offending;
+    }
+
+    public void setOffending(String offending) {
+        this.offending = offending;
+    }
+
+    /**
+     * @return display names of the tokens the parser expected
+     */
+    public List<String> getExpected() {
+        return expected;
+    }
+
+    public void setExpected(List<String> expected) {
+        this.expected = expected;
+    }
+
+    /**
+     * @return replacement candidates, e.g. table or column names of the schema close to the offending name
+     */
+    public List<String> getFixes() {
+        return fixes;
+    }
+
+    public void setFixes(List<String> fixes) {
+        this.fixes = fixes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder(code.name());
+        if (range != null) {
+            b.append(' ').append(range);
+        }
+        b.append(": ").append(message);
+        if (!expected.isEmpty()) {
+            b.append(", expected ").append(expected);
+        }
+        if (!fixes.isEmpty()) {
+            b.append(", did you mean ").append(fixes);
+        }
+        return b.toString();
+    }
+}
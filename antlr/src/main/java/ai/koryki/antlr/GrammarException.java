@@ -16,9 +16,13 @@
  */
 package ai.koryki.antlr;
 
+import java.util.ArrayList;
+import java.util.List;
 
 public class GrammarException extends PositionException {
 
+    private List<Diagnostic> diagnostics = new ArrayList<>();
+
     public GrammarException() {
         super();
     }
@@ -33,4 +37,12 @@ public class GrammarException extends PositionException {
         super(msg, cause);
     }
 
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public void setDiagnostics(List<Diagnostic> diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
 }
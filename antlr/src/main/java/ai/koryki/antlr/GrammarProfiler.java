@@ -0,0 +1,279 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.ParseInfo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Run a corpus through the profiling ATN simulator and report the cost of every grammar decision.
+ * <p>
+ * Without timing the report only contains counts, which depend on grammar and corpus,
+ * not on the machine or on the state of the DFA cache, so reports of two commits can be diffed.
+ */
+public class GrammarProfiler<L extends Lexer, P extends Parser> {
+
+    private final Function<CharStream, L> lexer;
+    private final Function<TokenStream, P> parser;
+    private final Function<P, ? extends ParserRuleContext> rule;
+
+    public GrammarProfiler(Function<CharStream, L> lexer, Function<TokenStream, P> parser, Function<P, ? extends ParserRuleContext> rule) {
+        this.lexer = lexer;
+        this.parser = parser;
+        this.rule = rule;
+    }
+
+    public Report profile(List<String> queries) {
+
+        P p = null;
+        int errors = 0;
+        for (String q : queries) {
+            L l = lexer.apply(CharStreams.fromString(q));
+            l.removeErrorListeners();
+            CommonTokenStream tokens = new CommonTokenStream(l);
+            if (p == null) {
+                p = parser.apply(tokens);
+                p.setProfile(true);
+            } else {
+                p.setTokenStream(tokens);
+            }
+            p.removeErrorListeners();
+            try {
+                rule.apply(p);
+                errors += p.getNumberOfSyntaxErrors();
+            } catch (RuntimeException e) {
+                errors++;
+            }
+        }
+        if (p == null) {
+            return new Report(queries.size(), errors, new ArrayList<>());
+        }
+
+        ParseInfo info = p.getParseInfo();
+        String[] rules = p.getRuleNames();
+        List<Decision> decisions = new ArrayList<>();
+        for (DecisionInfo d : info.getDecisionInfo()) {
+            if (d.invocations == 0) {
+                continue;
+            }
+            DecisionState state = p.getATN().getDecisionState(d.decision);
+            decisions.add(new Decision(rules[state.ruleIndex], d));
+        }
+        return new Report(queries.size(), errors, decisions);
+    }
+
+    /**
+     * Profile the warm-up corpus or the given files and print the report, for the launchers
+     * in the reader packages.
+     *
+     * @param args [-timing] [file...]
+     * @param corpus warm-up corpus used without files, see {@link Warmup#corpus(String)}
+     */
+    public static void run(String[] args, GrammarProfiler<?, ?> profiler, String corpus) throws IOException {
+
+        boolean timing = false;
+        List<String> queries = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("-timing")) {
+                timing = true;
+            } else {
+                queries.add(new String(Files.readAllBytes(Paths.get(arg)), StandardCharsets.UTF_8));
+            }
+        }
+        if (queries.isEmpty()) {
+            queries = Warmup.corpus(corpus);
+        }
+        System.out.print(profiler.profile(queries).format(timing));
+    }
+
+    public static class Decision {
+
+        private final String rule;
+        private final DecisionInfo info;
+
+        private Decision(String rule, DecisionInfo info) {
+            this.rule = rule;
+            this.info = info;
+        }
+
+        public String getRule() {
+            return rule;
+        }
+
+        public int getDecision() {
+            return info.decision;
+        }
+
+        public long getInvocations() {
+            return info.invocations;
+        }
+
+        public long getNanos() {
+            return info.timeInPrediction;
+        }
+
+        public long getSllMaxLook() {
+            return info.SLL_MaxLook;
+        }
+
+        public long getLlMaxLook() {
+            return info.LL_MaxLook;
+        }
+
+        public double getAverageLook() {
+            return (double) (info.SLL_TotalLook + info.LL_TotalLook) / info.invocations;
+        }
+
+        /**
+         * @return number of SLL conflicts, that needed full context prediction
+         */
+        public long getLlFallbacks() {
+            return info.LL_Fallback;
+        }
+
+        public int getContextSensitivities() {
+            return info.contextSensitivities.size();
+        }
+
+        public int getAmbiguities() {
+            return info.ambiguities.size();
+        }
+
+        public int getErrors() {
+            return info.errors.size();
+        }
+
+        public DecisionInfo getInfo() {
+            return info;
+        }
+    }
+
+    public static class Report {
+
+        private final int queries;
+        private final int errors;
+        private final List<Decision> decisions;
+
+        private Report(int queries, int errors, List<Decision> decisions) {
+            this.queries = queries;
+            this.errors = errors;
+            this.decisions = decisions;
+        }
+
+        public int getQueries() {
+            return queries;
+        }
+
+        /**
+         * @return number of syntax errors in the corpus
+         */
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return invoked decisions, ordered by decision number
+         */
+        public List<Decision> getDecisions() {
+            return decisions;
+        }
+
+        /**
+         * @return decisions grouped by rule name
+         */
+        public Map<String, List<Decision>> getRules() {
+            Map<String, List<Decision>> rules = new TreeMap<>();
+            for (Decision d : decisions) {
+                rules.computeIfAbsent(d.getRule(), k -> new ArrayList<>()).add(d);
+            }
+            return rules;
+        }
+
+        /**
+         * One line per rule followed by its decisions, sorted by rule name and decision number.
+         *
+         * @param timing add prediction time, which differs from run to run
+         */
+        public String format(boolean timing) {
+            String nl = System.lineSeparator();
+            StringBuilder b = new StringBuilder();
+            b.append("queries: ").append(queries).append(", errors: ").append(errors).append(nl);
+            for (Map.Entry<String, List<Decision>> e : getRules().entrySet()) {
+                long invocations = 0;
+                long look = 0;
+                long fallbacks = 0;
+                long ambiguities = 0;
+                long nanos = 0;
+                for (Decision d : e.getValue()) {
+                    invocations += d.getInvocations();
+                    look += d.info.SLL_TotalLook + d.info.LL_TotalLook;
+                    fallbacks += d.getLlFallbacks();
+                    ambiguities += d.getAmbiguities();
+                    nanos += d.getNanos();
+                }
+                b.append(e.getKey()).append(": invocations ").append(invocations)
+                        .append(", look ").append(look)
+                        .append(", ll fallbacks ").append(fallbacks)
+                        .append(", ambiguities ").append(ambiguities);
+                if (timing) {
+                    b.append(", us ").append(nanos / 1000);
+                }
+                b.append(nl);
+                for (Decision d : e.getValue()) {
+                    b.append("  decision ").append(d.getDecision())
+                            .append(": invocations ").append(d.getInvocations())
+                            .append(", avg look ").append(String.format(Locale.ROOT, "%.2f", d.getAverageLook()))
+                            .append(", sll max ").append(d.getSllMaxLook())
+                            .append(", ll max ").append(d.getLlMaxLook())
+                            .append(", ll fallbacks ").append(d.getLlFallbacks())
+                            .append(", context sensitivities ").append(d.getContextSensitivities())
+                            .append(", ambiguities ").append(d.getAmbiguities())
+                            .append(", errors ").append(d.getErrors());
+                    if (timing) {
+                        b.append(", us ").append(d.getNanos() / 1000);
+                    }
+                    b.append(nl);
+                }
+            }
+            return b.toString();
+        }
+
+        @Override
+        public String toString() {
+            return format(false);
+        }
+    }
+}
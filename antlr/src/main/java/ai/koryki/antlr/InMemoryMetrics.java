@@ -0,0 +1,161 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histograms per stage, buckets are powers of two nanoseconds.
+ */
+public class InMemoryMetrics implements PipelineMetrics {
+
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(String stage, long nanos) {
+        Histogram h = histograms.get(stage);
+        if (h == null) {
+            h = histograms.computeIfAbsent(stage, k -> new Histogram());
+        }
+        h.record(nanos);
+    }
+
+    public Histogram getHistogram(String stage) {
+        return histograms.get(stage);
+    }
+
+    /**
+     * @return histograms sorted by stage name
+     */
+    public Map<String, Histogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * One line per stage: count, sum, min, mean, p50, p99 and max in nanoseconds.
+     */
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        for (Map.Entry<String, Histogram> e : getHistograms().entrySet()) {
+            b.append(e.getKey()).append(' ').append(e.getValue()).append(System.lineSeparator());
+        }
+        return b.toString();
+    }
+
+    public static class Histogram {
+
+        private static final int BUCKETS = 64;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos) {
+            long n = Math.max(0, nanos);
+            count.increment();
+            sum.add(n);
+            buckets.incrementAndGet(bucket(n));
+
+            long m = min.get();
+            while (n < m && !min.compareAndSet(m, n)) {
+                m = min.get();
+            }
+            m = max.get();
+            while (n > m && !max.compareAndSet(m, n)) {
+                m = max.get();
+            }
+        }
+
+        private static int bucket(long nanos) {
+            return nanos == 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMin() {
+            return getCount() > 0 ? min.get() : 0;
+        }
+
+        public long getMax() {
+            return getCount() > 0 ? max.get() : 0;
+        }
+
+        public double getMean() {
+            long c = getCount();
+            return c > 0 ? (double) getSum() / c : 0.0;
+        }
+
+        /**
+         * @param p quantile between 0 and 1
+         * @return upper bound of the bucket holding the quantile, at most {@link #getMax()}
+         */
+        public long getPercentile(double p) {
+            long c = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                c += buckets.get(i);
+            }
+            if (c == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(p * c);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    long upper = i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(upper, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        /**
+         * @return number of samples per bucket, bucket i holds values below 2^i
+         */
+        public long[] getBuckets() {
+            long[] r = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                r[i] = buckets.get(i);
+            }
+            return r;
+        }
+
+        @Override
+        public String toString() {
+            return "count: " + getCount() + ", sum: " + getSum() + ", min: " + getMin() + ", mean: " + (long) getMean()
+                    + ", p50: " + getPercentile(0.5) + ", p99: " + getPercentile(0.99) + ", max: " + getMax();
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package ai.koryki.antlr;
 
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.IntervalSet;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
@@ -27,7 +28,10 @@ import java.util.List;
 public class MsgErrorListener extends BaseErrorListener {
 
     private boolean abort;
+    private int maxPanics;
+    private int errors;
     private List<Interval> panic = new ArrayList<>();
+    private List<Diagnostic> diagnostics = new ArrayList<>();
 
     public MsgErrorListener(boolean abort) {
         this.abort = abort;
@@ -44,6 +48,7 @@ public class MsgErrorListener extends BaseErrorListener {
 
         if (recognizer instanceof Parser) {
 
+            diagnostics.add(diagnostic((Parser) recognizer, (Token) offendingSymbol, msg, e));
             if (abort) {
                 abort((Parser) recognizer, offendingSymbol, line, charPositionInLine, msg);
             } else {
@@ -52,9 +57,11 @@ public class MsgErrorListener extends BaseErrorListener {
         } else if (recognizer instanceof Lexer) {
             String l = "line " + line + ":" + charPositionInLine + " at " + offendingSymbol + " : " + msg;
 
+            diagnostics.add(new Diagnostic(Diagnostic.Code.LEXER, msg, new Range(line, charPositionInLine, line, charPositionInLine)));
             GrammarException se = new GrammarException("Lexer" + System.lineSeparator() + l);
             se.setLine(line);
             se.setPos(charPositionInLine);
+            se.setDiagnostics(diagnostics);
             throw se;
         } else if (recognizer == null) {
             GrammarException se = new GrammarException("null" + System.lineSeparator());
@@ -69,7 +76,23 @@ public class MsgErrorListener extends BaseErrorListener {
         }
     }
 
-    private static void abort(Parser recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg) {
+    private static Diagnostic diagnostic(Parser parser, Token token, String msg, RecognitionException e) {
+
+        boolean eof = token.getType() == Token.EOF;
+        Range range = eof ? Range.range(token) : new Range(Position.start(token), Position.stop(token));
+        Diagnostic d = new Diagnostic(Diagnostic.Code.SYNTAX, msg, range);
+        d.setOffending(eof ? "<EOF>" : token.getText());
+
+        IntervalSet expected = e != null && e.getExpectedTokens() != null ? e.getExpectedTokens() : parser.getExpectedTokens();
+        List<String> names = new ArrayList<>();
+        for (int type : expected.toList()) {
+            names.add(type == Token.EOF ? "<EOF>" : parser.getVocabulary().getDisplayName(type));
+        }
+        d.setExpected(names);
+        return d;
+    }
+
+    private void abort(Parser recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg) {
         List<String> stack = recognizer.getRuleInvocationStack();
         Collections.reverse(stack);
 
@@ -79,6 +102,7 @@ public class MsgErrorListener extends BaseErrorListener {
         GrammarException se = new GrammarException(s + System.lineSeparator() + l);
         se.setLine(line);
         se.setPos(charPositionInLine);
+        se.setDiagnostics(diagnostics);
         throw se;
     }
 
@@ -86,6 +110,13 @@ public class MsgErrorListener extends BaseErrorListener {
         Parser parser = recognizer;
         Token offendingToken = offendingSymbol;
 
+        errors++;
+        if (maxPanics > 0 && errors > maxPanics) {
+            ParseBudgetException e = new ParseBudgetException(ParseBudgetException.Budget.PANICS, maxPanics, errors).at(offendingToken);
+            e.getDiagnostics().addAll(diagnostics);
+            throw e;
+        }
+
         ParserRuleContext context = parser.getContext();
         int startIndex = least(context);
         int stopIndex = offendingToken.getTokenIndex();
@@ -118,6 +149,24 @@ public class MsgErrorListener extends BaseErrorListener {
         return panic;
     }
 
+    /**
+     * @return one diagnostic per syntax error, in the order they were reported
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Prepare for the next query, panic intervals already handed out stay untouched.
+     */
+    public void reset(boolean abort) {
+        this.abort = abort;
+        this.maxPanics = 0;
+        this.errors = 0;
+        this.panic = new ArrayList<>();
+        this.diagnostics = new ArrayList<>();
+    }
+
     public boolean isAbort() {
         return abort;
     }
@@ -125,4 +174,15 @@ public class MsgErrorListener extends BaseErrorListener {
     public void setAbort(boolean abort) {
         this.abort = abort;
     }
+
+    public int getMaxPanics() {
+        return maxPanics;
+    }
+
+    /**
+     * @param maxPanics throw a {@link ParseBudgetException} when more syntax errors are recovered, 0 is unlimited
+     */
+    public void setMaxPanics(int maxPanics) {
+        this.maxPanics = maxPanics;
+    }
 }
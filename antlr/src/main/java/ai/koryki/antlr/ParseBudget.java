@@ -0,0 +1,85 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenSource;
+
+/**
+ * Limits for one query: characters, tokens, wall time of lexing and parsing and number of syntax errors
+ * recovered in panic mode, each of them may add a panic interval.
+ * A limit of 0 means unlimited. Exceeding a limit throws {@link ParseBudgetException}.
+ */
+public class ParseBudget {
+
+    public static final ParseBudget UNLIMITED = new ParseBudget(0, 0, 0, 0);
+
+    private final int maxChars;
+    private final int maxTokens;
+    private final long maxMillis;
+    private final int maxPanics;
+
+    public ParseBudget(int maxChars, int maxTokens, long maxMillis, int maxPanics) {
+        if (maxChars < 0 || maxTokens < 0 || maxMillis < 0 || maxPanics < 0) {
+            throw new IllegalArgumentException("negative budget");
+        }
+        this.maxChars = maxChars;
+        this.maxTokens = maxTokens;
+        this.maxMillis = maxMillis;
+        this.maxPanics = maxPanics;
+    }
+
+    public int getMaxChars() {
+        return maxChars;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public int getMaxPanics() {
+        return maxPanics;
+    }
+
+    public boolean isUnlimited() {
+        return maxChars == 0 && maxTokens == 0 && maxMillis == 0 && maxPanics == 0;
+    }
+
+    /**
+     * Check the input size before anything is lexed.
+     */
+    public void checkChars(CharStream input) {
+        if (maxChars > 0 && input.size() > maxChars) {
+            throw new ParseBudgetException(ParseBudgetException.Budget.CHARS, maxChars, input.size());
+        }
+    }
+
+    /**
+     * @return a token stream enforcing token count and time, the clock starts now
+     */
+    public CommonTokenStream newTokenStream(TokenSource source) {
+        if (maxTokens == 0 && maxMillis == 0) {
+            return new CommonTokenStream(source);
+        }
+        return new BudgetTokenStream(source, this);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import org.antlr.v4.runtime.Token;
+
+/**
+ * Thrown when a query exceeds its {@link ParseBudget}.
+ */
+public class ParseBudgetException extends GrammarException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Budget {
+        CHARS, TOKENS, TIME, PANICS
+    }
+
+    private final Budget budget;
+    private final long limit;
+    private final long actual;
+
+    public ParseBudgetException(Budget budget, long limit, long actual) {
+        super(budget.name().toLowerCase() + " budget exceeded: " + actual + " > " + limit);
+        this.budget = budget;
+        this.limit = limit;
+        this.actual = actual;
+        getDiagnostics().add(new Diagnostic(Diagnostic.Code.BUDGET, getMessage()));
+    }
+
+    /**
+     * Locate the exception at the token being processed when the budget ran out.
+     */
+    ParseBudgetException at(Token token) {
+        if (token != null) {
+            setLine(token.getLine());
+            setPos(token.getCharPositionInLine());
+            getDiagnostics().get(0).setRange(Range.range(token));
+        }
+        return this;
+    }
+
+    public Budget getBudget() {
+        return budget;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getActual() {
+        return actual;
+    }
+}
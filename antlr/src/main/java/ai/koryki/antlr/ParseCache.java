@@ -0,0 +1,266 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.Token;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded LRU cache for parse results, keyed by a SHA-256 hash of the default channel tokens.
+ * <p>
+ * Queries differing only in whitespace and comments share an entry, the description is
+ * taken from the comments of the current text. Only queries without syntax errors are cached.
+ * Values are shared between callers and must not be modified, e.g. cache the SQL
+ * or a bean before {@code Bean2Sql.applyRules} instead of one that is rewritten afterwards.
+ */
+public class ParseCache<V> {
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final ToLongFunction<? super V> weigher;
+
+    private final LinkedHashMap<Key, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Weigh entries by their token count.
+     */
+    public ParseCache(int maxEntries, long maxBytes) {
+        this(maxEntries, maxBytes, null);
+    }
+
+    /**
+     * @param maxEntries maximum number of entries
+     * @param maxBytes   maximum estimated size of all entries
+     * @param weigher    estimated size of a value in bytes, null to estimate from the tokens
+     */
+    public ParseCache(int maxEntries, long maxBytes, ToLongFunction<? super V> weigher) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("invalid limits: " + maxEntries + ", " + maxBytes);
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Lex the reader's input and look up its tokens, on a miss parse with build and keep the value.
+     *
+     * @param build parses the reader and derives the value, e.g. {@code r -> r.getCtx()}
+     */
+    public <R extends AbstractReader<?, ?, ?>> Result<V> get(R reader, Function<? super R, ? extends V> build) {
+
+        BufferedTokenStream tokens = reader.getTokens();
+        tokens.fill();
+
+        MessageDigest digest = digest();
+        int first = -1;
+        int count = 0;
+        long chars = 0;
+        for (Token t : tokens.getTokens()) {
+            if (t.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+            if (first < 0) {
+                first = t.getTokenIndex();
+            }
+            count++;
+            String text = t.getText();
+            chars += text.length();
+            update(digest, t.getType());
+            byte[] b = text.getBytes(StandardCharsets.UTF_8);
+            update(digest, b.length);
+            digest.update(b);
+        }
+        Key key = new Key(digest.digest());
+        String description = first >= 0 ? reader.getComment(first) : null;
+
+        Entry<V> entry;
+        synchronized (this) {
+            entry = map.get(key);
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+            return new Result<>(entry.value, description, true);
+        }
+        misses.incrementAndGet();
+
+        V value = build.apply(reader);
+        if (reader.getPanic() == null || reader.getPanic().isEmpty()) {
+            long weight = weigher != null ? weigher.applyAsLong(value) : estimate(count, chars);
+            put(key, new Entry<>(value, weight));
+        }
+        return new Result<>(value, description, false);
+    }
+
+    private synchronized void put(Key key, Entry<V> entry) {
+
+        if (entry.bytes > maxBytes) {
+            return;
+        }
+        Entry<V> old = map.put(key, entry);
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+        bytes += entry.bytes;
+
+        Iterator<Map.Entry<Key, Entry<V>>> i = map.entrySet().iterator();
+        while ((map.size() > maxEntries || bytes > maxBytes) && i.hasNext()) {
+            Map.Entry<Key, Entry<V>> eldest = i.next();
+            if (eldest.getValue() == entry) {
+                continue;
+            }
+            bytes -= eldest.getValue().bytes;
+            i.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Rough size of a parse tree: a node per token plus the token texts.
+     */
+    private static long estimate(int tokens, long chars) {
+        return 96L * tokens + 2 * chars + 64;
+    }
+
+    private static void update(MessageDigest digest, int i) {
+        digest.update((byte) (i >>> 24));
+        digest.update((byte) (i >>> 16));
+        digest.update((byte) (i >>> 8));
+        digest.update((byte) i);
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        bytes = 0;
+    }
+
+    public synchronized int getSize() {
+        return map.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total > 0 ? (double) h / total : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return "entries: " + getSize() + ", bytes: " + getBytes() + ", hits: " + getHits() + ", misses: " + getMisses()
+                + ", evictions: " + getEvictions();
+    }
+
+    public static class Result<V> {
+
+        private final V value;
+        private final String description;
+        private final boolean hit;
+
+        private Result(V value, String description, boolean hit) {
+            this.value = value;
+            this.description = description;
+            this.hit = hit;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * @return description of the current text, not the one of the cached entry
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        public boolean isHit() {
+            return hit;
+        }
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long bytes;
+
+        Entry(V value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Key {
+
+        private final byte[] hash;
+        private final int hashCode;
+
+        Key(byte[] hash) {
+            this.hash = hash;
+            this.hashCode = Arrays.hashCode(hash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(hash, ((Key) o).hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts parses per prediction stage, shared by all readers of one grammar.
+ */
+public class ParseCounter {
+
+    private final AtomicLong parses = new AtomicLong();
+    private final AtomicLong sll = new AtomicLong();
+    private final AtomicLong ll = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    void sll() {
+        parses.incrementAndGet();
+        sll.incrementAndGet();
+    }
+
+    void ll() {
+        parses.incrementAndGet();
+        ll.incrementAndGet();
+    }
+
+    void fallback() {
+        fallbacks.incrementAndGet();
+    }
+
+    /**
+     * @return number of completed parses
+     */
+    public long getParses() {
+        return parses.get();
+    }
+
+    /**
+     * @return number of parses completed in SLL mode
+     */
+    public long getSll() {
+        return sll.get();
+    }
+
+    /**
+     * @return number of parses completed in LL mode, including fallbacks
+     */
+    public long getLl() {
+        return ll.get();
+    }
+
+    /**
+     * @return number of two-stage parses, where SLL failed and LL was needed
+     */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    public double getFallbackRate() {
+        long p = parses.get();
+        return p > 0 ? (double) fallbacks.get() / p : 0.0;
+    }
+
+    public void reset() {
+        parses.set(0);
+        sll.set(0);
+        ll.set(0);
+        fallbacks.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "parses: " + getParses() + ", sll: " + getSll() + ", ll: " + getLl() + ", fallbacks: " + getFallbacks();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Thread-safe pool of lexer and parser instances.
+ * <p>
+ * A {@link Lease} is borrowed for one query and must be closed when the query is done.
+ * Lexer and parser are reset with setInputStream, the token stream is created per lease,
+ * because readers keep it for comments and positions after parsing.
+ */
+public class ParserPool<L extends Lexer, P extends Parser> implements AutoCloseable {
+
+    private final Function<CharStream, L> lexerFactory;
+    private final Function<TokenStream, P> parserFactory;
+    private final int maxIdle;
+
+    private final ConcurrentLinkedQueue<Lease<L, P>> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private volatile boolean closed;
+
+    public ParserPool(Function<CharStream, L> lexerFactory, Function<TokenStream, P> parserFactory, int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("negative maxIdle " + maxIdle);
+        }
+        this.lexerFactory = lexerFactory;
+        this.parserFactory = parserFactory;
+        this.maxIdle = maxIdle;
+    }
+
+    public Lease<L, P> borrow(CharStream input, boolean abort) {
+        return borrow(input, abort, ParseBudget.UNLIMITED);
+    }
+
+    /**
+     * Borrow a lease whose token stream and error listener enforce the budget.
+     */
+    public Lease<L, P> borrow(CharStream input, boolean abort, ParseBudget budget) {
+        if (closed) {
+            throw new IllegalStateException("pool closed");
+        }
+        Lease<L, P> lease = idle.poll();
+        if (lease == null) {
+            lease = new Lease<>(this);
+            created.incrementAndGet();
+        } else {
+            idleCount.decrementAndGet();
+            reused.incrementAndGet();
+        }
+        lease.reset(input, abort, budget);
+        return lease;
+    }
+
+    private void release(Lease<L, P> lease) {
+        if (closed || idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idle.offer(lease);
+    }
+
+    /**
+     * Drop all idle instances, leases still borrowed are discarded on close.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        idle.clear();
+        idleCount.set(0);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getIdle() {
+        return idleCount.get();
+    }
+
+    public long getCreated() {
+        return created.get();
+    }
+
+    public long getReused() {
+        return reused.get();
+    }
+
+    public static class Lease<L extends Lexer, P extends Parser> implements AutoCloseable {
+
+        private final ParserPool<L, P> pool;
+        private final MsgErrorListener listener = new MsgErrorListener(false);
+        private L lexer;
+        private P parser;
+        private CommonTokenStream tokens;
+        private boolean borrowed;
+
+        private Lease(ParserPool<L, P> pool) {
+            this.pool = pool;
+        }
+
+        private void reset(CharStream input, boolean abort, ParseBudget budget) {
+            listener.reset(abort);
+            listener.setMaxPanics(budget.getMaxPanics());
+            if (lexer == null) {
+                lexer = pool.lexerFactory.apply(input);
+                lexer.removeErrorListeners();
+                lexer.addErrorListener(listener);
+            } else {
+                lexer.setInputStream(input);
+            }
+            tokens = budget.newTokenStream(lexer);
+            if (parser == null) {
+                parser = pool.parserFactory.apply(tokens);
+            } else {
+                parser.setInputStream(tokens);
+            }
+            parser.removeErrorListeners();
+            parser.removeParseListeners();
+            parser.setBuildParseTree(true);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            borrowed = true;
+        }
+
+        public L getLexer() {
+            return lexer;
+        }
+
+        public P getParser() {
+            return parser;
+        }
+
+        public CommonTokenStream getTokens() {
+            return tokens;
+        }
+
+        public MsgErrorListener getListener() {
+            return listener;
+        }
+
+        /**
+         * Return lexer and parser to the pool. The token stream stays with the caller,
+         * it is filled before the lexer is handed to the next query.
+         */
+        @Override
+        public void close() {
+            if (!borrowed) {
+                return;
+            }
+            borrowed = false;
+            try {
+                tokens.fill();
+            } catch (RuntimeException e) {
+                // lexer failed, don't reuse it
+                return;
+            }
+            parser.setInputStream(null);
+            lexer.setInputStream(null);
+            tokens = null;
+            pool.release(this);
+        }
+    }
+}
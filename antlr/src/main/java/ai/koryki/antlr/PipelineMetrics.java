@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+/**
+ * Receives stage timings of the translation pipeline, lexing and parsing up to SQL emission.
+ */
+public interface PipelineMetrics {
+
+    String LEX = "lex";
+    String PARSE = "parse";
+    String BEAN = "bean";
+    String RULE = "rule.";
+    String SQL = "sql";
+
+    /**
+     * Discards all timings, callers check {@link #isEnabled()} and skip taking the time.
+     */
+    PipelineMetrics NOOP = new PipelineMetrics() {
+        @Override
+        public void record(String stage, long nanos) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * @param stage name of the stage, see constants
+     * @param nanos elapsed time measured with {@link System#nanoTime()}
+     */
+    void record(String stage, long nanos);
+
+    default boolean isEnabled() {
+        return true;
+    }
+}
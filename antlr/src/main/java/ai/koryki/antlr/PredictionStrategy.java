@@ -0,0 +1,29 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+/**
+ * Prediction strategy used by readers to parse a query.
+ */
+public enum PredictionStrategy {
+    /** full LL prediction, report all errors to the listener */
+    LL,
+    /** SLL prediction only, may report errors for input LL would accept */
+    SLL,
+    /** SLL prediction with bail out, fall back to LL on first error */
+    TWO_STAGE
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Replay a corpus of queries to fill the DFA cache of a grammar at startup.
+ * <p>
+ * ANTLR builds the prediction DFA lazily and synchronizes on every new state,
+ * so the first queries are slow and concurrent parsers contend. After warm-up,
+ * the DFA snapshot of the report can be compared with later snapshots
+ * to verify that steady state parses add no new states.
+ */
+public class Warmup {
+
+    public static final String KQL_CORPUS = "/ai/koryki/antlr/warmup/kql.lst";
+    public static final String IQL_CORPUS = "/ai/koryki/antlr/warmup/iql.lst";
+
+    /**
+     * Read the queries listed in an index resource, one resource name per line, relative to the index.
+     */
+    public static List<String> corpus(String index) {
+
+        String dir = index.substring(0, index.lastIndexOf('/') + 1);
+        InputStream in = Warmup.class.getResourceAsStream(index);
+        if (in == null) {
+            throw new IllegalArgumentException("missing corpus " + index);
+        }
+        List<String> queries = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    queries.add(AbstractReader.read(dir + line));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return queries;
+    }
+
+    public static Report run(List<String> queries, Function<String, ? extends AbstractReader<?, ?, ?>> reader, Supplier<DfaSnapshot> snapshot) {
+
+        DfaSnapshot before = snapshot.get();
+        long start = System.nanoTime();
+        int failures = 0;
+        for (String q : queries) {
+            try (AbstractReader<?, ?, ?> r = reader.apply(q)) {
+                r.getCtx();
+                if (r.getPanic() != null && !r.getPanic().isEmpty()) {
+                    failures++;
+                }
+            } catch (RuntimeException e) {
+                failures++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        return new Report(queries.size(), failures, nanos, before, snapshot.get());
+    }
+
+    public static class Report {
+
+        private final int queries;
+        private final int failures;
+        private final long nanos;
+        private final DfaSnapshot before;
+        private final DfaSnapshot after;
+
+        private Report(int queries, int failures, long nanos, DfaSnapshot before, DfaSnapshot after) {
+            this.queries = queries;
+            this.failures = failures;
+            this.nanos = nanos;
+            this.before = before;
+            this.after = after;
+        }
+
+        public int getQueries() {
+            return queries;
+        }
+
+        /**
+         * @return number of queries with syntax errors, they still contribute DFA states
+         */
+        public int getFailures() {
+            return failures;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public DfaSnapshot getBefore() {
+            return before;
+        }
+
+        public DfaSnapshot getAfter() {
+            return after;
+        }
+
+        public int getAdded() {
+            return after.added(before);
+        }
+
+        @Override
+        public String toString() {
+            return "queries: " + queries + ", failures: " + failures + ", ms: " + nanos / 1_000_000
+                    + ", added states: " + getAdded() + ", " + after;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr.iql;
+
+import ai.koryki.antlr.GrammarProfiler;
+import ai.koryki.antlr.Warmup;
+
+import java.io.IOException;
+
+/**
+ * Profile the IQL grammar with the warm-up corpus or the given files.
+ * Usage: IQLProfiler [-timing] [file...]
+ */
+public class IQLProfiler {
+
+    private IQLProfiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        GrammarProfiler.run(args, IQLReader.profiler(), Warmup.IQL_CORPUS);
+    }
+}
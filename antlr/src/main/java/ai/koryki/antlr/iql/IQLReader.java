@@ -20,8 +20,18 @@ import ai.koryki.antlr.IQLLexer;
 import ai.koryki.antlr.IQLParser;
 import org.antlr.v4.runtime.*;
 import ai.koryki.antlr.AbstractReader;
+import ai.koryki.antlr.BatchReader;
+import ai.koryki.antlr.CharStreamFactory;
+import ai.koryki.antlr.DfaSnapshot;
+import ai.koryki.antlr.Diagnostic;
+import ai.koryki.antlr.GrammarProfiler;
 import ai.koryki.antlr.Interval;
 import ai.koryki.antlr.MsgErrorListener;
+import ai.koryki.antlr.ParseBudget;
+import ai.koryki.antlr.ParseCounter;
+import ai.koryki.antlr.ParserPool;
+import ai.koryki.antlr.PipelineMetrics;
+import ai.koryki.antlr.Warmup;
 
 import java.io.*;
 import java.nio.charset.Charset;
@@ -33,17 +43,69 @@ public class IQLReader extends AbstractReader<IQLLexer, IQLParser, IQLParser.Que
     private IQLLexer lexer;
     private IQLParser parser;
     private CharStream cs;
-    private LineNumberReader lnr;
     private List<Interval> panic;
+    private List<Diagnostic> diagnostics;
 
     private BufferedTokenStream tokens;
     private IQLParser.QueryContext script;
     private MsgErrorListener listener = new MsgErrorListener(false);
+    private ParserPool<IQLLexer, IQLParser> pool;
+    private ParserPool.Lease<IQLLexer, IQLParser> lease;
+
+    private static final ParseCounter COUNTER = new ParseCounter();
 
     public static String iqlDefinition() {
         return read( "/ai/koryki/antlr/IQL.g4");
     }
 
+    /**
+     * @return parse counter shared by all IQLReader instances
+     */
+    public static ParseCounter getCounter() {
+        return COUNTER;
+    }
+
+    /**
+     * Create a pool of reusable lexer and parser instances for this grammar.
+     *
+     * @param maxIdle maximum number of idle instances kept by the pool
+     */
+    public static ParserPool<IQLLexer, IQLParser> newPool(int maxIdle) {
+        return new ParserPool<>(IQLLexer::new, IQLParser::new, maxIdle);
+    }
+
+    /**
+     * @return state counts of the DFA cache shared by all IQL parsers
+     */
+    public static DfaSnapshot dfaSnapshot() {
+        return DfaSnapshot.of(new IQLLexer(null), new IQLParser(null));
+    }
+
+    /**
+     * Fill the DFA cache with the bundled IQL corpus, call once at startup.
+     */
+    public static Warmup.Report warmup() {
+        return warmup(Warmup.corpus(Warmup.IQL_CORPUS));
+    }
+
+    public static Warmup.Report warmup(List<String> queries) {
+        return Warmup.run(queries, q -> new IQLReader(CharStreams.fromString(q), false), IQLReader::dfaSnapshot);
+    }
+
+    /**
+     * Profile grammar decisions, see {@link GrammarProfiler}.
+     */
+    public static GrammarProfiler<IQLLexer, IQLParser> profiler() {
+        return new GrammarProfiler<>(IQLLexer::new, IQLParser::new, IQLParser::query);
+    }
+
+    /**
+     * Read a file of IQL queries separated by ';', see {@link BatchReader}.
+     */
+    public static BatchReader<IQLParser.QueryContext> batch(Reader in) {
+        return new BatchReader<>(in, q -> new IQLReader(q, false));
+    }
+
     public IQLReader(String sql) throws IOException {
 
         this(sql, false);
@@ -51,7 +113,7 @@ public class IQLReader extends AbstractReader<IQLLexer, IQLParser, IQLParser.Que
 
     public IQLReader(String sql, boolean abort) throws IOException {
 
-        this(new StringReader(sql), abort);
+        this(CharStreams.fromString(sql), abort);
     }
 
     public IQLReader(File in) throws IOException {
@@ -59,7 +121,7 @@ public class IQLReader extends AbstractReader<IQLLexer, IQLParser, IQLParser.Que
     }
 
     public IQLReader(File in, boolean abort) throws IOException {
-        this(new FileInputStream(in), StandardCharsets.UTF_8, abort);
+        this(CharStreamFactory.fromFile(in.toPath()), abort);
     }
 
     public IQLReader(InputStream in) throws IOException {
@@ -75,15 +137,14 @@ public class IQLReader extends AbstractReader<IQLLexer, IQLParser, IQLParser.Que
     }
     public IQLReader(InputStream in, Charset cs, boolean abort) throws IOException {
 
-        this(new InputStreamReader(in, cs), abort);
+        this(CharStreams.fromStream(in, cs), abort);
     }
 
     public IQLReader(java.io.Reader in) throws IOException {
         this(in, false);
     }
     public IQLReader(java.io.Reader in, boolean abort) throws IOException {
-        lnr = new LineNumberReader(in);
-        this.cs = CharStreams.fromReader(lnr);
+        this.cs = CharStreams.fromReader(in);
         this.listener.setAbort(abort);
     }
 
@@ -93,6 +154,16 @@ public class IQLReader extends AbstractReader<IQLLexer, IQLParser, IQLParser.Que
         this.listener.setAbort(abort);
     }
 
+    /**
+     * Read with lexer and parser borrowed from a pool, the reader must be closed to return them.
+     * After close a parsed query, its tokens and comments stay available, lexer and parser don't.
+     */
+    public IQLReader(ParserPool<IQLLexer, IQLParser> pool, CharStream input, boolean abort) {
+
+        this(input, abort);
+        this.pool = pool;
+    }
+
     public IQLReader(BufferedTokenStream tokens, List<Interval> panic, IQLParser.QueryContext script) {
 
         this.tokens = tokens;
@@ -100,8 +171,8 @@ public class IQLReader extends AbstractReader<IQLLexer, IQLParser, IQLParser.Que
         this.script = script;
     }
 
-    private long lexduration;
-    private long parseduration;
+    private long lexnanos;
+    private long parsenanos;
 
     private void parse() {
         if (script != null) {
@@ -109,26 +180,39 @@ public class IQLReader extends AbstractReader<IQLLexer, IQLParser, IQLParser.Que
         }
         lex();
         // parsing
-        parser = new IQLParser(tokens);
-        parser.removeErrorListeners();
-        parser.addErrorListener(listener);
-        long start = System.currentTimeMillis();
-        script = parser.query();
+        parser = lease != null ? lease.getParser() : new IQLParser(tokens);
+        long start = System.nanoTime();
+        script = parse(parser, listener, IQLParser::query, COUNTER);
         panic = listener.getPanic();
-        parseduration = System.currentTimeMillis() - start;
+        diagnostics = listener.getDiagnostics();
+        parsenanos = System.nanoTime() - start;
+        getMetrics().record(PipelineMetrics.PARSE, parsenanos);
     }
 
     private void lex() {
         if (tokens != null) {
             return;
         }
-        long start = System.currentTimeMillis();
-
-        lexer = new IQLLexer(cs);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(listener);
-        tokens = new CommonTokenStream(lexer);
-        lexduration = System.currentTimeMillis() - start;
+        long start = System.nanoTime();
+
+        ParseBudget budget = getBudget();
+        budget.checkChars(cs);
+        if (pool != null) {
+            lease = pool.borrow(cs, listener.isAbort(), budget);
+            listener = lease.getListener();
+            lexer = lease.getLexer();
+            tokens = lease.getTokens();
+        } else {
+            lexer = new IQLLexer(cs);
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(listener);
+            listener.setMaxPanics(budget.getMaxPanics());
+            tokens = budget.newTokenStream(lexer);
+        }
+        // the token stream is lazy, fetch all tokens here so lexing isn't accounted to parsing
+        tokens.fill();
+        lexnanos = System.nanoTime() - start;
+        getMetrics().record(PipelineMetrics.LEX, lexnanos);
     }
 
     @Override
@@ -172,15 +256,34 @@ public class IQLReader extends AbstractReader<IQLLexer, IQLParser, IQLParser.Que
 
     public int getLinesOfCode() {
 
-        return lnr != null ? lnr.getLineNumber() : -1;
+        BufferedTokenStream t = getTokens();
+        if (t == null || t.size() == 0) {
+            return -1;
+        }
+        // line of EOF minus one, same count as LineNumberReader
+        return t.get(t.size() - 1).getLine() - 1;
     }
 
+    /**
+     * @return lex time in milliseconds
+     */
     public long getLexduration() {
-        return lexduration;
+        return lexnanos / 1_000_000;
     }
 
+    /**
+     * @return parse time in milliseconds
+     */
     public long getParseduration() {
-        return parseduration;
+        return parsenanos / 1_000_000;
+    }
+
+    public long getLexnanos() {
+        return lexnanos;
+    }
+
+    public long getParsenanos() {
+        return parsenanos;
     }
 
     public long getDuration() {
@@ -192,6 +295,11 @@ public class IQLReader extends AbstractReader<IQLLexer, IQLParser, IQLParser.Que
         return panic;
     }
 
+    @Override
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
     public boolean isAbort() {
         return listener.isAbort();
     }
@@ -199,4 +307,28 @@ public class IQLReader extends AbstractReader<IQLLexer, IQLParser, IQLParser.Que
     public void setAbort(boolean abort) {
         listener.setAbort(abort);
     }
+
+    /**
+     * Return a borrowed lexer and parser to the pool. The reader keeps a private error listener,
+     * an unparsed query is read again from the start with new instances.
+     */
+    @Override
+    public void close() {
+        if (pool == null) {
+            return;
+        }
+        if (lease != null) {
+            lease.close();
+            lease = null;
+        }
+        pool = null;
+        lexer = null;
+        parser = null;
+        // the pooled listener serves the next lease
+        listener = new MsgErrorListener(listener.isAbort());
+        if (script == null) {
+            tokens = null;
+            cs.seek(0);
+        }
+    }
 }
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.antlr.kql;
+
+import ai.koryki.antlr.KQLLexer;
+import ai.koryki.antlr.KQLParser;
+import ai.koryki.antlr.MsgErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read a KQL query while it is generated, chunk by chunk.
+ * <p>
+ * Tokens the lexer recognized without reaching the end of the text are stable and never lexed again,
+ * each chunk only lexes the tail. After every chunk the tokens are parsed with SLL prediction
+ * to tell whether the text is a complete query, a viable prefix or can't become a query anymore.
+ * ANTLR can't resume a parse, so the parser runs over all tokens, lexing is incremental only.
+ */
+public class IncrementalKQLReader {
+
+    public enum Status {
+        /** the text is a complete query, more chunks may still extend it */
+        COMPLETE,
+        /** the text is the beginning of a query */
+        VIABLE,
+        /** no continuation of the text is a query */
+        INVALID
+    }
+
+    private final StringBuilder text = new StringBuilder();
+    private final List<Token> stable = new ArrayList<>();
+    private final KQLLexer lexer = new KQLLexer(null);
+    private final TailListener tailListener = new TailListener();
+    private KQLParser parser;
+
+    // start of the unstable tail, with its line and position
+    private int offset;
+    private int line = 1;
+    private int column;
+
+    private List<Token> tail = new ArrayList<>();
+    private Status status = Status.VIABLE;
+    private Token offending;
+    private CommonTokenStream tokens;
+    private KQLParser.QueryContext query;
+
+    public IncrementalKQLReader() {
+        lexer.setTokenFactory(new CommonTokenFactory(true));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(tailListener);
+    }
+
+    /**
+     * @return status of all text appended so far
+     */
+    public Status append(CharSequence chunk) {
+
+        if (chunk.length() == 0) {
+            return status;
+        }
+        text.append(chunk);
+        query = null;
+        if (status == Status.INVALID && offending.getType() != Token.EOF && offending.getStopIndex() < offset) {
+            // error lies in the stable part, appending can't help
+            return status;
+        }
+        lexTail();
+        status = check();
+        return status;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return token where parsing failed, when status is INVALID
+     */
+    public Token getOffending() {
+        return status == Status.INVALID ? offending : null;
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * @return number of tokens that won't be lexed again
+     */
+    public int getStableTokens() {
+        return stable.size();
+    }
+
+    /**
+     * Lex the rest of the text and parse the query, no chunks may follow.
+     * A complete query isn't parsed again.
+     */
+    public KQLReader finish(boolean abort) {
+
+        MsgErrorListener listener = new MsgErrorListener(abort);
+        if (query != null) {
+            return new KQLReader(tokens, listener.getPanic(), query);
+        }
+
+        lexer.addErrorListener(listener);
+        try {
+            lexTail();
+        } finally {
+            lexer.removeErrorListener(listener);
+        }
+        tokens = tokens(tail.size());
+        KQLParser p = parser(tokens);
+        p.getInterpreter().setPredictionMode(PredictionMode.LL);
+        p.setErrorHandler(new DefaultErrorStrategy());
+        p.addErrorListener(listener);
+        KQLParser.QueryContext ctx = p.query();
+        return new KQLReader(tokens, listener.getPanic(), ctx);
+    }
+
+    private void lexTail() {
+
+        TailStream cs = new TailStream(CharStreams.fromString(text.substring(offset)));
+        lexer.setInputStream(cs);
+        lexer.setLine(line);
+        lexer.setCharPositionInLine(column);
+        tailListener.reset(offset);
+
+        // a token is stable, when the lexer didn't reach the end of the text to recognize it
+        tail = new ArrayList<>();
+        int n = -1;
+        Token t;
+        while ((t = lexer.nextToken()).getType() != Token.EOF) {
+            CommonToken c = (CommonToken) t;
+            c.setStartIndex(c.getStartIndex() + offset);
+            c.setStopIndex(c.getStopIndex() + offset);
+            tail.add(c);
+            if (n < 0 && (cs.end || tailListener.error >= 0)) {
+                n = tail.size() - 1;
+            }
+        }
+        if (n < 0) {
+            n = tail.size();
+        }
+        if (n > 0) {
+            stable.addAll(tail.subList(0, n));
+            advance(tail.get(n - 1).getStopIndex() + 1);
+            tail = new ArrayList<>(tail.subList(n, tail.size()));
+        }
+    }
+
+    private void advance(int to) {
+        for (int i = offset; i < to; i++) {
+            if (text.charAt(i) == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+        }
+        offset = to;
+    }
+
+    private Status check() {
+
+        if (tailListener.error >= 0 && !tailListener.pending) {
+            int i = tailListener.error;
+            CommonToken t = new CommonToken(Token.INVALID_TYPE, text.substring(i, i + 1));
+            t.setStartIndex(i);
+            t.setStopIndex(i);
+            t.setLine(tailListener.line);
+            t.setCharPositionInLine(tailListener.column);
+            offending = t;
+            return Status.INVALID;
+        }
+
+        // with a pending lexer error only the tokens in front of it are parsed
+        int n = tail.size();
+        if (tailListener.error >= 0) {
+            n = 0;
+            while (n < tail.size() && tail.get(n).getStartIndex() < tailListener.error) {
+                n++;
+            }
+        }
+
+        // SLL may fail where LL succeeds
+        ParseCancellationException failure = null;
+        for (PredictionMode mode : new PredictionMode[] {PredictionMode.SLL, PredictionMode.LL}) {
+            CommonTokenStream ts = tokens(n);
+            KQLParser p = parser(ts);
+            p.getInterpreter().setPredictionMode(mode);
+            p.setErrorHandler(new BailErrorStrategy());
+            try {
+                KQLParser.QueryContext ctx = p.query();
+                if (tailListener.error >= 0) {
+                    return Status.VIABLE;
+                }
+                tokens = ts;
+                query = ctx;
+                return Status.COMPLETE;
+            } catch (ParseCancellationException e) {
+                failure = e;
+                offending = p.getCurrentToken();
+            }
+        }
+        if (failure.getCause() instanceof RecognitionException) {
+            offending = ((RecognitionException) failure.getCause()).getOffendingToken();
+        }
+        return viable(offending) ? Status.VIABLE : Status.INVALID;
+    }
+
+    /**
+     * An error at end of input or at a token, which a further chunk may still change, doesn't count.
+     */
+    private boolean viable(Token t) {
+        return t == null
+                || t.getType() == Token.EOF
+                || t.getTokenIndex() >= stable.size();
+    }
+
+    private CommonTokenStream tokens(int n) {
+        List<Token> list = new ArrayList<>(stable.size() + n + 1);
+        list.addAll(stable);
+        list.addAll(tail.subList(0, n));
+        list.add(eof(n < tail.size() ? tail.get(n).getStartIndex() : text.length()));
+        return new CommonTokenStream(new ListTokenSource(list));
+    }
+
+    /**
+     * EOF token at index of the text, like the lexer emits it.
+     */
+    private Token eof(int index) {
+        int l = line;
+        int c = column;
+        for (int i = offset; i < index; i++) {
+            if (text.charAt(i) == '\n') {
+                l++;
+                c = 0;
+            } else {
+                c++;
+            }
+        }
+        CommonToken t = new CommonToken(Token.EOF, "<EOF>");
+        t.setStartIndex(index);
+        t.setStopIndex(index - 1);
+        t.setLine(l);
+        t.setCharPositionInLine(c);
+        return t;
+    }
+
+    private KQLParser parser(CommonTokenStream ts) {
+        if (parser == null) {
+            parser = new KQLParser(ts);
+        } else {
+            parser.setTokenStream(ts);
+        }
+        parser.removeErrorListeners();
+        parser.removeParseListeners();
+        return parser;
+    }
+
+    /**
+     * Remembers whether the lexer looked at the end of the text.
+     */
+    private static class TailStream implements CharStream {
+
+        private final CharStream delegate;
+        private boolean end;
+
+        TailStream(CharStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int LA(int i) {
+            int c = delegate.LA(i);
+            if (c == IntStream.EOF && i > 0) {
+                end = true;
+            }
+            return c;
+        }
+
+        @Override
+        public String getText(org.antlr.v4.runtime.misc.Interval interval) {
+            return delegate.getText(interval);
+        }
+
+        @Override
+        public void consume() {
+            delegate.consume();
+        }
+
+        @Override
+        public int mark() {
+            return delegate.mark();
+        }
+
+        @Override
+        public void release(int marker) {
+            delegate.release(marker);
+        }
+
+        @Override
+        public int index() {
+            return delegate.index();
+        }
+
+        @Override
+        public void seek(int index) {
+            delegate.seek(index);
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public String getSourceName() {
+            return delegate.getSourceName();
+        }
+    }
+
+    private static class TailListener extends BaseErrorListener {
+
+        private int base;
+        // first error in the tail, index in the text
+        private int error = -1;
+        private int line;
+        private int column;
+        // the lexer reached the end of the text before the error, more text may resolve it
+        private boolean pending;
+
+        void reset(int base) {
+            this.base = base;
+            error = -1;
+            pending = false;
+        }
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+            if (error >= 0) {
+                return;
+            }
+            Lexer l = (Lexer) recognizer;
+            error = base + l._tokenStartCharIndex;
+            this.line = l._tokenStartLine;
+            this.column = l._tokenStartCharPositionInLine;
+            pending = ((TailStream) l.getInputStream()).end;
+        }
+    }
+}
@@ -20,7 +20,6 @@ import ai.koryki.antlr.*;
 import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
 
 import java.io.*;
 import java.nio.charset.Charset;
@@ -32,25 +31,77 @@ public class KQLReader extends AbstractReader<KQLLexer, KQLParser, KQLParser.Que
     private KQLLexer lexer;
     private KQLParser parser;
     private CharStream cs;
-    private LineNumberReader lnr;
     private List<Interval> panic;
+    private List<Diagnostic> diagnostics;
 
     private BufferedTokenStream tokens;
     private KQLParser.QueryContext script;
     private MsgErrorListener listener = new MsgErrorListener(false);
+    private ParserPool<KQLLexer, KQLParser> pool;
+    private ParserPool.Lease<KQLLexer, KQLParser> lease;
+
+    private static final ParseCounter COUNTER = new ParseCounter();
 
     public static String kqlDefinition() {
         return read( "/ai/koryki/antlr/KQL.g4");
     }
 
+    /**
+     * @return parse counter shared by all KQLReader instances
+     */
+    public static ParseCounter getCounter() {
+        return COUNTER;
+    }
+
+    /**
+     * Create a pool of reusable lexer and parser instances for this grammar.
+     *
+     * @param maxIdle maximum number of idle instances kept by the pool
+     */
+    public static ParserPool<KQLLexer, KQLParser> newPool(int maxIdle) {
+        return new ParserPool<>(KQLLexer::new, KQLParser::new, maxIdle);
+    }
+
+    /**
+     * @return state counts of the DFA cache shared by all KQL parsers
+     */
+    public static DfaSnapshot dfaSnapshot() {
+        return DfaSnapshot.of(new KQLLexer(null), new KQLParser(null));
+    }
+
+    /**
+     * Fill the DFA cache with the bundled KQL corpus, call once at startup.
+     */
+    public static Warmup.Report warmup() {
+        return warmup(Warmup.corpus(Warmup.KQL_CORPUS));
+    }
+
+    public static Warmup.Report warmup(List<String> queries) {
+        return Warmup.run(queries, q -> new KQLReader(CharStreams.fromString(q), false), KQLReader::dfaSnapshot);
+    }
+
+    /**
+     * Profile grammar decisions, see {@link GrammarProfiler}.
+     */
+    public static GrammarProfiler<KQLLexer, KQLParser> profiler() {
+        return new GrammarProfiler<>(KQLLexer::new, KQLParser::new, KQLParser::query);
+    }
+
+    /**
+     * Read a file of KQL queries separated by ';', see {@link BatchReader}.
+     */
+    public static BatchReader<KQLParser.QueryContext> batch(Reader in) {
+        return new BatchReader<>(in, q -> new KQLReader(q, false));
+    }
+
     public KQLReader(String sql) throws IOException {
 
-        this(new StringReader(sql), false);
+        this(CharStreams.fromString(sql), false);
     }
 
     public KQLReader(String sql, boolean abort) throws IOException {
 
-        this(new StringReader(sql), abort);
+        this(CharStreams.fromString(sql), abort);
     }
 
     public String getDescription() {
@@ -58,7 +109,7 @@ public class KQLReader extends AbstractReader<KQLLexer, KQLParser, KQLParser.Que
     }
 
     public KQLReader(File in) throws IOException {
-        this(new FileInputStream(in), StandardCharsets.UTF_8);
+        this(CharStreamFactory.fromFile(in.toPath()), false);
     }
 
     public KQLReader(InputStream in, boolean abort) throws IOException {
@@ -71,17 +122,16 @@ public class KQLReader extends AbstractReader<KQLLexer, KQLParser, KQLParser.Que
 
     public KQLReader(InputStream in, Charset cs) throws IOException {
 
-        this(new InputStreamReader(in, cs), false);
+        this(CharStreams.fromStream(in, cs), false);
     }
 
     public KQLReader(InputStream in, Charset cs, boolean abort) throws IOException {
 
-        this(new InputStreamReader(in, cs), abort);
+        this(CharStreams.fromStream(in, cs), abort);
     }
 
     public KQLReader(Reader in, boolean abort) throws IOException {
-        lnr = new LineNumberReader(in);
-        this.cs = CharStreams.fromReader(lnr);
+        this.cs = CharStreams.fromReader(in);
         this.listener.setAbort(abort);
     }
 
@@ -91,6 +141,16 @@ public class KQLReader extends AbstractReader<KQLLexer, KQLParser, KQLParser.Que
         this.listener.setAbort(abort);
     }
 
+    /**
+     * Read with lexer and parser borrowed from a pool, the reader must be closed to return them.
+     * After close a parsed query, its tokens and comments stay available, lexer and parser don't.
+     */
+    public KQLReader(ParserPool<KQLLexer, KQLParser> pool, CharStream input, boolean abort) {
+
+        this(input, abort);
+        this.pool = pool;
+    }
+
     public KQLReader(BufferedTokenStream tokens, List<Interval> panic, KQLParser.QueryContext script) {
 
         this.tokens = tokens;
@@ -98,8 +158,8 @@ public class KQLReader extends AbstractReader<KQLLexer, KQLParser, KQLParser.Que
         this.script = script;
     }
 
-    private long lexduration;
-    private long parseduration;
+    private long lexnanos;
+    private long parsenanos;
 
     private void parse() {
         if (script != null) {
@@ -107,53 +167,39 @@ public class KQLReader extends AbstractReader<KQLLexer, KQLParser, KQLParser.Que
         }
         lex();
         // parsing
-        parser = new KQLParser(tokens);
-        parser.removeErrorListeners();
-        parser.addErrorListener(listener);
-        long start = System.currentTimeMillis();
-        script = parser.query();
+        parser = lease != null ? lease.getParser() : new KQLParser(tokens);
+        long start = System.nanoTime();
+        script = parse(parser, listener, KQLParser::query, COUNTER);
         panic = listener.getPanic();
-        parseduration = System.currentTimeMillis() - start;
+        diagnostics = listener.getDiagnostics();
+        parsenanos = System.nanoTime() - start;
+        getMetrics().record(PipelineMetrics.PARSE, parsenanos);
     }
 
-    /*
-            // parsing
-        parser = new PlSqlParser(tokens);
-        parser.removeErrorListeners();
-
-        //parser.addErrorListener(listener);
-        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
-        parser.setErrorHandler(new BailErrorStrategy());
-        try {
-
-            doParse();
-        } catch (ParseCancellationException e)  {
-
-            tokens.reset();
-            parser.reset();
-
-            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
-            parser.setErrorHandler(new DefaultErrorStrategy());
-
-            parser.addErrorListener(listener);
-
-            doParse();
-        }
-
-     */
-
-
     private void lex() {
         if (tokens != null) {
             return;
         }
-        long start = System.currentTimeMillis();
-
-        lexer = new KQLLexer(cs);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(listener);
-        tokens = new CommonTokenStream(lexer);
-        lexduration = System.currentTimeMillis() - start;
+        long start = System.nanoTime();
+
+        ParseBudget budget = getBudget();
+        budget.checkChars(cs);
+        if (pool != null) {
+            lease = pool.borrow(cs, listener.isAbort(), budget);
+            listener = lease.getListener();
+            lexer = lease.getLexer();
+            tokens = lease.getTokens();
+        } else {
+            lexer = new KQLLexer(cs);
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(listener);
+            listener.setMaxPanics(budget.getMaxPanics());
+            tokens = budget.newTokenStream(lexer);
+        }
+        // the token stream is lazy, fetch all tokens here so lexing isn't accounted to parsing
+        tokens.fill();
+        lexnanos = System.nanoTime() - start;
+        getMetrics().record(PipelineMetrics.LEX, lexnanos);
     }
 
     @Override
@@ -193,15 +239,34 @@ public class KQLReader extends AbstractReader<KQLLexer, KQLParser, KQLParser.Que
 
     public int getLinesOfCode() {
 
-        return lnr != null ? lnr.getLineNumber() : -1;
+        BufferedTokenStream t = getTokens();
+        if (t == null || t.size() == 0) {
+            return -1;
+        }
+        // line of EOF minus one, same count as LineNumberReader
+        return t.get(t.size() - 1).getLine() - 1;
     }
 
+    /**
+     * @return lex time in milliseconds
+     */
     public long getLexduration() {
-        return lexduration;
+        return lexnanos / 1_000_000;
     }
 
+    /**
+     * @return parse time in milliseconds
+     */
     public long getParseduration() {
-        return parseduration;
+        return parsenanos / 1_000_000;
+    }
+
+    public long getLexnanos() {
+        return lexnanos;
+    }
+
+    public long getParsenanos() {
+        return parsenanos;
     }
 
     public long getDuration() {
@@ -213,6 +278,11 @@ public class KQLReader extends AbstractReader<KQLLexer, KQLParser, KQLParser.Que
         return panic;
     }
 
+    @Override
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
     public boolean isAbort() {
         return listener.isAbort();
     }
@@ -220,4 +290,28 @@ public class KQLReader extends AbstractReader<KQLLexer, KQLParser, KQLParser.Que
     public void setAbort(boolean abort) {
         listener.setAbort(abort);
     }
+
+    /**
+     * Return a borrowed lexer and parser to the pool. The reader keeps a private error listener,
+     * an unparsed query is read again from the start with new instances.
+     */
+    @Override
+    public void close() {
+        if (pool == null) {
+            return;
+        }
+        if (lease != null) {
+            lease.close();
+            lease = null;
+        }
+        pool = null;
+        lexer = null;
+        parser = null;
+        // the pooled listener serves the next lease
+        listener = new MsgErrorListener(listener.isAbort());
+        if (script == null) {
+            tokens = null;
+            cs.seek(0);
+        }
+    }
 }
@@ -18,6 +18,7 @@ package ai.korykiai.antlr;
 
 import ai.koryki.antlr.IQLParser;
 import ai.koryki.antlr.Interval;
+import ai.koryki.antlr.Warmup;
 import ai.koryki.antlr.iql.IQLReader;
 import org.junit.jupiter.api.Test;
 
@@ -48,4 +49,12 @@ public class IqlReaderTest {
         List<Interval> panic = reader.getPanic();
         assertTrue(panic.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void warmup() {
+
+        Warmup.Report report = IQLReader.warmup();
+        assertTrue(report.getQueries() > 0);
+        assertEquals(0, report.getFailures());
+    }
+}
@@ -16,15 +16,37 @@
  */
 package ai.korykiai.antlr;
 
+import ai.koryki.antlr.AbstractReader;
+import ai.koryki.antlr.BatchReader;
+import ai.koryki.antlr.CharStreamFactory;
+import ai.koryki.antlr.DfaSnapshot;
+import ai.koryki.antlr.Diagnostic;
 import ai.koryki.antlr.GrammarException;
+import ai.koryki.antlr.GrammarProfiler;
 import ai.koryki.antlr.Interval;
+import ai.koryki.antlr.KQLLexer;
 import ai.koryki.antlr.KQLParser;
+import ai.koryki.antlr.ParseBudget;
+import ai.koryki.antlr.ParseBudgetException;
+import ai.koryki.antlr.ParseCounter;
+import ai.koryki.antlr.ParserPool;
+import ai.koryki.antlr.PredictionStrategy;
+import ai.koryki.antlr.Warmup;
+import ai.koryki.antlr.kql.IncrementalKQLReader;
 import ai.koryki.antlr.kql.KQLReader;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CodePointCharStream;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,8 +80,11 @@ public class KqlReaderTest {
             KQLReader reader = new KQLReader(in, true);
             reader.getQuery();
             fail("expected exception not thrown");
-        } catch (GrammarException ignored) {
-            // empty
+        } catch (GrammarException e) {
+            Diagnostic d = e.getDiagnostics().get(0);
+            assertEquals(Diagnostic.Code.SYNTAX, d.getCode());
+            assertEquals(e.getLine(), d.getRange().getStart().getLine());
+            assertFalse(d.getExpected().isEmpty());
         }
     }
 
@@ -74,4 +99,213 @@ public class KqlReaderTest {
         List<Interval> panic = reader.getPanic();
         assertFalse(panic.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void readTwoStage() throws IOException {
+        InputStream in = KQLReader.class.getResourceAsStream(
+                "/ai/koryki/databases/northwind/demo/employeeranking.kql");
+
+        ParseCounter counter = KQLReader.getCounter();
+        long fallbacks = counter.getFallbacks();
+        long sll = counter.getSll();
+
+        KQLReader reader = new KQLReader(in);
+        reader.setStrategy(PredictionStrategy.TWO_STAGE);
+        assertNotNull(reader.getQuery());
+        assertTrue(reader.getPanic().isEmpty());
+
+        assertEquals(fallbacks, counter.getFallbacks());
+        assertEquals(sll + 1, counter.getSll());
+    }
+
+    @Test
+    public void readTwoStagePanic() throws IOException {
+        InputStream in = KQLReader.class.getResourceAsStream(
+                "/ai/koryki/antlr/employeeranking_panic.lql");
+
+        ParseCounter counter = KQLReader.getCounter();
+        long fallbacks = counter.getFallbacks();
+
+        KQLReader reader = new KQLReader(in, false);
+        reader.setStrategy(PredictionStrategy.TWO_STAGE);
+        assertNotNull(reader.getQuery());
+        assertFalse(reader.getPanic().isEmpty());
+
+        assertEquals(fallbacks + 1, counter.getFallbacks());
+    }
+
+    @Test
+    public void warmup() {
+
+        Warmup.Report report = KQLReader.warmup();
+        assertEquals(Warmup.corpus(Warmup.KQL_CORPUS).size(), report.getQueries());
+
+        DfaSnapshot steady = KQLReader.dfaSnapshot();
+        KQLReader.warmup();
+        assertTrue(KQLReader.dfaSnapshot().isFrozen(steady));
+    }
+
+    @Test
+    public void batch() {
+
+        String valid = AbstractReader.read("/ai/koryki/databases/northwind/demo/employeeranking.kql");
+        String panic = AbstractReader.read("/ai/koryki/antlr/employeeranking_panic.lql");
+        String batch = valid + ";\n" + panic + ";\n/* ; */ " + valid + ";\n// no query ;\n";
+
+        List<BatchReader.Entry<KQLParser.QueryContext>> entries;
+        try (BatchReader<KQLParser.QueryContext> reader = KQLReader.batch(new StringReader(batch))) {
+            entries = reader.stream(false).collect(Collectors.toList());
+        }
+        assertEquals(3, entries.size());
+        assertTrue(entries.get(0).isValid());
+        assertNotNull(entries.get(0).getDescription());
+        assertEquals(1, entries.get(0).getLine());
+        assertFalse(entries.get(1).isValid());
+        assertTrue(entries.get(2).isValid());
+        assertEquals(2, entries.get(2).getIndex());
+
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            b.append(valid).append(";\n").append(panic).append(";\n");
+        }
+        try (BatchReader<KQLParser.QueryContext> reader = KQLReader.batch(new StringReader(b.toString()))) {
+            List<BatchReader.Entry<KQLParser.QueryContext>> parallel = reader.stream(true).collect(Collectors.toList());
+            assertEquals(400, parallel.size());
+            assertEquals(200, parallel.stream().filter(BatchReader.Entry::isValid).count());
+            assertTrue(parallel.stream().allMatch(e -> e.isValid() == (e.getIndex() % 2 == 0)));
+        }
+    }
+
+    @Test
+    public void incremental() throws IOException {
+
+        String query = AbstractReader.read("/ai/koryki/databases/northwind/demo/employeeranking.kql");
+
+        IncrementalKQLReader incremental = new IncrementalKQLReader();
+        for (int i = 0; i < query.length(); i += 3) {
+            IncrementalKQLReader.Status status = incremental.append(query.substring(i, Math.min(i + 3, query.length())));
+            assertNotEquals(IncrementalKQLReader.Status.INVALID, status);
+        }
+        assertEquals(IncrementalKQLReader.Status.COMPLETE, incremental.getStatus());
+        assertTrue(incremental.getStableTokens() > 0);
+
+        KQLReader reader = incremental.finish(false);
+        KQLReader expected = new KQLReader(query);
+        assertTrue(reader.getPanic().isEmpty());
+        assertEquals(expected.getDescription(), reader.getDescription());
+        assertEquals(expected.getQuery().getText(), reader.getQuery().getText());
+    }
+
+    @Test
+    public void incrementalInvalid() {
+
+        IncrementalKQLReader incremental = new IncrementalKQLReader();
+        assertEquals(IncrementalKQLReader.Status.VIABLE, incremental.append("FIND customers c FILTER c.name = 'Al"));
+        assertEquals(IncrementalKQLReader.Status.VIABLE, incremental.append("fred"));
+        assertEquals(IncrementalKQLReader.Status.COMPLETE, incremental.append("s'"));
+        assertEquals(IncrementalKQLReader.Status.VIABLE, incremental.append(" FIN"));
+        assertEquals(IncrementalKQLReader.Status.INVALID, incremental.append("D "));
+        assertEquals("FIND", incremental.getOffending().getText());
+        assertEquals(IncrementalKQLReader.Status.INVALID, incremental.append("customers"));
+    }
+
+    @Test
+    public void charStreams() throws IOException {
+
+        String ascii = AbstractReader.read("/ai/koryki/databases/northwind/demo/employeeranking.kql");
+        String utf8 = "// t\u00e9l\u00e9phone \ud83d\udcde" + System.lineSeparator() + ascii;
+
+        for (String query : new String[] {ascii, utf8}) {
+            KQLReader expected = new KQLReader(query);
+            byte[] bytes = query.getBytes(StandardCharsets.UTF_8);
+
+            KQLReader fromBytes = new KQLReader(CharStreamFactory.fromBytes(bytes), false);
+            assertEquals(expected.getQuery().getText(), fromBytes.getQuery().getText());
+            assertEquals(expected.getLinesOfCode(), fromBytes.getLinesOfCode());
+
+            Path file = Files.createTempFile("koryki", ".kql");
+            try {
+                Files.write(file, bytes);
+                KQLReader fromFile = new KQLReader(file.toFile());
+                assertEquals(expected.getQuery().getText(), fromFile.getQuery().getText());
+                assertEquals(expected.getDescription(), fromFile.getDescription());
+            } finally {
+                Files.delete(file);
+            }
+        }
+        assertEquals(2, new KQLReader("FIND customers c\nFILTER c.country = 'Germany'\n").getLinesOfCode());
+
+        // decoded in several chunks
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("\ud83d\udcde\u00e9");
+        }
+        CodePointCharStream chunked = CharStreamFactory.fromBytes(text.toString().getBytes(StandardCharsets.UTF_8));
+        assertEquals(10000, chunked.size());
+        assertEquals(text.toString(), chunked.toString());
+    }
+
+    @Test
+    public void comments() throws IOException {
+
+        String nl = System.lineSeparator();
+        KQLReader reader = new KQLReader("// customers\n// in Germany\nFIND customers c\n// only Germany\nFILTER c.country = 'Germany'");
+        KQLParser.QueryContext query = reader.getQuery();
+
+        assertEquals(" customers" + nl + " in Germany", reader.getDescription());
+        assertEquals(reader.getDescription(), reader.getComment(query.set()));
+        assertEquals(" only Germany", reader.getComment(query.set().select().filterClause()));
+        assertNull(reader.getComment(query.set().select().table()));
+        assertNull(reader.getComment(0));
+    }
+
+    @Test
+    public void profile() {
+
+        List<String> corpus = Warmup.corpus(Warmup.KQL_CORPUS);
+        GrammarProfiler.Report report = KQLReader.profiler().profile(corpus);
+        assertEquals(corpus.size(), report.getQueries());
+        assertTrue(report.getRules().containsKey("logical_expression"));
+
+        // counts don't depend on the DFA cache, reports of two runs are equal
+        assertEquals(report.format(false), KQLReader.profiler().profile(corpus).format(false));
+        System.out.println(report.format(true));
+    }
+
+    @Test
+    public void budget() throws IOException {
+
+        String query = AbstractReader.read("/ai/koryki/databases/northwind/demo/employeeranking.kql");
+
+        KQLReader chars = new KQLReader(query);
+        chars.setBudget(new ParseBudget(10, 0, 0, 0));
+        ParseBudgetException e = assertThrows(ParseBudgetException.class, chars::getQuery);
+        assertEquals(ParseBudgetException.Budget.CHARS, e.getBudget());
+        assertEquals(query.length(), e.getActual());
+
+        KQLReader tokens = new KQLReader(query);
+        tokens.setBudget(new ParseBudget(0, 5, 0, 0));
+        e = assertThrows(ParseBudgetException.class, tokens::getQuery);
+        assertEquals(ParseBudgetException.Budget.TOKENS, e.getBudget());
+        assertEquals(6, e.getActual());
+
+        String panic = AbstractReader.read("/ai/koryki/antlr/employeeranking_panic.lql");
+        KQLReader panics = new KQLReader(panic, false);
+        panics.setBudget(new ParseBudget(0, 0, 0, 1));
+        e = assertThrows(ParseBudgetException.class, panics::getQuery);
+        assertEquals(ParseBudgetException.Budget.PANICS, e.getBudget());
+
+        try (ParserPool<KQLLexer, KQLParser> pool = KQLReader.newPool(1)) {
+            KQLReader pooled = new KQLReader(pool, CharStreams.fromString(query), false);
+            pooled.setBudget(new ParseBudget(0, 5, 0, 0));
+            assertThrows(ParseBudgetException.class, pooled::getQuery);
+            pooled.close();
+
+            KQLReader enough = new KQLReader(pool, CharStreams.fromString(query), false);
+            enough.setBudget(new ParseBudget(query.length(), 10_000, 60_000, 1));
+            assertNotNull(enough.getQuery());
+            assertTrue(enough.getPanic().isEmpty());
+            enough.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.korykiai.antlr;
+
+import ai.koryki.antlr.AbstractReader;
+import ai.koryki.antlr.KQLParser;
+import ai.koryki.antlr.ParseCache;
+import ai.koryki.antlr.kql.KQLReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParseCacheTest {
+
+    private static final String QUERY = "// customers from Germany\nFIND customers c\nFILTER c.country = 'Germany'";
+    private static final String SAME = "// german customers\nFIND   customers c FILTER\n\tc.country = 'Germany'  ";
+    private static final String OTHER = "FIND customers c FILTER c.country = 'France'";
+
+    @Test
+    public void hit() throws IOException {
+
+        ParseCache<KQLParser.QueryContext> cache = new ParseCache<>(10, 1 << 20);
+
+        ParseCache.Result<KQLParser.QueryContext> first = cache.get(new KQLReader(QUERY), KQLReader::getQuery);
+        assertFalse(first.isHit());
+        assertEquals(" customers from Germany", first.getDescription());
+
+        ParseCache.Result<KQLParser.QueryContext> second = cache.get(new KQLReader(SAME), KQLReader::getQuery);
+        assertTrue(second.isHit());
+        assertSame(first.getValue(), second.getValue());
+        assertEquals(" german customers", second.getDescription());
+
+        assertFalse(cache.get(new KQLReader(OTHER), KQLReader::getQuery).isHit());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void panicNotCached() throws IOException {
+
+        ParseCache<KQLParser.QueryContext> cache = new ParseCache<>(10, 1 << 20);
+        String panic = AbstractReader.read("/ai/koryki/antlr/employeeranking_panic.lql");
+        cache.get(new KQLReader(panic, false), KQLReader::getQuery);
+        assertFalse(cache.get(new KQLReader(panic, false), KQLReader::getQuery).isHit());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void evict() throws IOException {
+
+        ParseCache<String> entries = new ParseCache<>(2, 1 << 20);
+        for (String q : new String[] {QUERY, OTHER, "FIND orders o", QUERY}) {
+            entries.get(new KQLReader(q), r -> r.getQuery().getText());
+        }
+        assertEquals(2, entries.getSize());
+        assertEquals(2, entries.getEvictions());
+        assertEquals(0, entries.getHits());
+
+        ParseCache<String> bytes = new ParseCache<>(100, 250, String::length);
+        bytes.get(new KQLReader(QUERY), r -> new String(new char[200]));
+        bytes.get(new KQLReader(OTHER), r -> new String(new char[200]));
+        assertEquals(1, bytes.getSize());
+        assertEquals(200, bytes.getBytes());
+        assertTrue(bytes.get(new KQLReader(OTHER), r -> "").isHit());
+    }
+}
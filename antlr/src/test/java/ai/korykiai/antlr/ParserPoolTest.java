@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.korykiai.antlr;
+
+import ai.koryki.antlr.AbstractReader;
+import ai.koryki.antlr.GrammarException;
+import ai.koryki.antlr.Interval;
+import ai.koryki.antlr.KQLLexer;
+import ai.koryki.antlr.KQLParser;
+import ai.koryki.antlr.ParserPool;
+import ai.koryki.antlr.kql.KQLReader;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParserPoolTest {
+
+    private static final String VALID = AbstractReader.read("/ai/koryki/databases/northwind/demo/employeeranking.kql");
+    private static final String PANIC = AbstractReader.read("/ai/koryki/antlr/employeeranking_panic.lql");
+
+    @Test
+    public void reuse() throws IOException {
+
+        try (ParserPool<KQLLexer, KQLParser> pool = KQLReader.newPool(1)) {
+
+            try (KQLReader r = new KQLReader(pool, CharStreams.fromString(VALID), false)) {
+                assertNotNull(r.getQuery());
+            }
+            try (KQLReader r = new KQLReader(pool, CharStreams.fromString(VALID), false)) {
+                assertNotNull(r.getQuery());
+                assertNotNull(r.getDescription());
+            }
+            assertEquals(1, pool.getCreated());
+            assertEquals(1, pool.getReused());
+        }
+    }
+
+    @Test
+    public void stress() throws IOException, InterruptedException, ExecutionException {
+
+        KQLReader panic = new KQLReader(PANIC, false);
+        panic.getQuery();
+        List<Interval> expected = panic.getPanic();
+        assertFalse(expected.isEmpty());
+        String description = new KQLReader(VALID).getDescription();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (ParserPool<KQLLexer, KQLParser> pool = KQLReader.newPool(4)) {
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                int kind = i % 6;
+                futures.add(executor.submit(() -> {
+                    if (kind < 4) {
+                        check(pool, kind, expected, description);
+                    } else {
+                        checkAfterClose(pool, kind == 4, expected, description);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+            assertTrue(pool.getReused() > 0);
+            assertTrue(pool.getIdle() <= 4);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void check(ParserPool<KQLLexer, KQLParser> pool, int kind, List<Interval> expected, String description) {
+
+        boolean valid = kind < 2;
+        boolean abort = kind % 2 == 1;
+
+        try (KQLReader r = new KQLReader(pool, CharStreams.fromString(valid ? VALID : PANIC), abort)) {
+            if (valid) {
+                assertNotNull(r.getQuery());
+                assertTrue(r.getPanic().isEmpty());
+                assertEquals(description, r.getDescription());
+            } else if (abort) {
+                assertThrows(GrammarException.class, r::getQuery);
+            } else {
+                assertNotNull(r.getQuery());
+                assertEquals(expected, r.getPanic());
+            }
+            assertEquals(abort, r.isAbort());
+        }
+    }
+
+    /**
+     * A reader closed before parsing reads again with its own instances, its abort flag doesn't reach the pool.
+     */
+    private static void checkAfterClose(ParserPool<KQLLexer, KQLParser> pool, boolean valid, List<Interval> expected, String description) {
+
+        KQLReader r = new KQLReader(pool, CharStreams.fromString(valid ? VALID : PANIC), false);
+        assertNotNull(r.getTokens());
+        r.close();
+        r.setAbort(true);
+        assertTrue(r.isAbort());
+        r.setAbort(false);
+        assertNotNull(r.getQuery());
+        if (valid) {
+            assertTrue(r.getPanic().isEmpty());
+            assertEquals(description, r.getDescription());
+        } else {
+            assertEquals(expected, r.getPanic());
+        }
+        r.setAbort(true);
+        r.close();
+        assertTrue(r.isAbort());
+    }
+}
@@ -16,6 +16,8 @@
  */
 package ai.koryki.iql;
 
+import ai.koryki.antlr.Diagnostic;
+import ai.koryki.antlr.PipelineMetrics;
 import ai.koryki.iql.query.Function;
 import ai.koryki.iql.rules.*;
 import ai.koryki.iql.query.*;
@@ -33,6 +35,7 @@ public class Bean2Sql {
 
     private Identifier idendifier = Identifier.lowercase;
     private Query query;
+    private PipelineMetrics metrics = PipelineMetrics.NOOP;
 
     public Bean2Sql(RelationResolver resolver, Query query) {
         this.resolver = resolver;
@@ -62,22 +65,50 @@ public class Bean2Sql {
 
     public String toSql() {
 
-        return toSql(query, 0);
+        return emit();
     }
 
     public String toEnhancedSql() {
         applyRules();
-        return toSql(query, 0);
+        return emit();
     }
 
     public void applyRules() {
-        new BlockRelationRule(query, resolver, idToTableMap).apply();
-        new HavingRule(query).apply();
-        new GroupRule(query).apply();
-        new IdentityRule(resolver.getDb()).apply(query);
+        rule("BlockRelationRule", () -> new BlockRelationRule(query, resolver, idToTableMap).apply());
+        rule("HavingRule", () -> new HavingRule(query).apply());
+        rule("GroupRule", () -> new GroupRule(query).apply());
+        rule("IdentityRule", () -> new IdentityRule(resolver.getDb()).apply(query));
 
-        new PushLogicalExpressionRule(resolver.getDb()).apply(query);
-        new CheckOuterJoinFilterRule().apply(query);
+        rule("PushLogicalExpressionRule", () -> new PushLogicalExpressionRule(resolver.getDb()).apply(query));
+        rule("CheckOuterJoinFilterRule", () -> new CheckOuterJoinFilterRule().apply(query));
+    }
+
+    private void rule(String name, Runnable rule) {
+        if (!metrics.isEnabled()) {
+            rule.run();
+            return;
+        }
+        long start = System.nanoTime();
+        rule.run();
+        metrics.record(PipelineMetrics.RULE + name, System.nanoTime() - start);
+    }
+
+    private String emit() {
+        if (!metrics.isEnabled()) {
+            return toSql(query, 0);
+        }
+        long start = System.nanoTime();
+        String sql = toSql(query, 0);
+        metrics.record(PipelineMetrics.SQL, System.nanoTime() - start);
+        return sql;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics != null ? metrics : PipelineMetrics.NOOP;
     }
 
     protected String toSql(Query s, int indent) {
@@ -631,6 +662,12 @@ public class Bean2Sql {
         return joinColumns(indent, start, end, crit, msg, right);
     }
 
+    private List<String> suggestTables(String table) {
+        List<String> fixes = resolver.suggestTables(table);
+        fixes.addAll(NameSuggester.nearest(table, idToTableMap.keySet()));
+        return fixes;
+    }
+
     private String joinColumns(int indent, Table start, Table end, String crit, String msg, Table right) {
         String startTable = start.getName();
         String endTable = end.getName();
@@ -638,21 +675,22 @@ public class Bean2Sql {
         boolean b1 = resolver.isTableInDatabase(startTable);
         Table s = idToTableMap.get(startTable);
         if (!b1 && s == null) {
-            throw new RuntimeException("can't find start: " + startTable);
+            throw new TranslationException(Diagnostic.Code.UNKNOWN_TABLE, "can't find start: " + startTable, startTable, suggestTables(startTable));
         }
         startTable = b1 ? startTable : s.getName();
         boolean b2 = resolver.isTableInDatabase(endTable);
 
         Table e = idToTableMap.get(endTable);
         if (!b2 && e == null) {
-            throw new RuntimeException("can't find end: " + endTable);
+            throw new TranslationException(Diagnostic.Code.UNKNOWN_TABLE, "can't find end: " + endTable, endTable, suggestTables(endTable));
         }
         endTable = b2 ? endTable : e.getName();
 
         Optional<Relation> o = resolver.find(Identifier.normal(Identifier.lowercase, startTable), Identifier.normal(Identifier.lowercase, endTable), crit);
 
         if (!o.isPresent()) {
-            throw new RuntimeException(msg +  " " + crit + " " + right.getName());
+            throw new TranslationException(Diagnostic.Code.NO_RELATION, msg +  " " + crit + " " + right.getName(), crit,
+                    resolver.relationsBetween(startTable, endTable));
         }
         Relation r = o.get();
 
@@ -17,6 +17,7 @@
 package ai.koryki.iql;
 
 import ai.koryki.antlr.IQLParser;
+import ai.koryki.antlr.PipelineMetrics;
 import ai.koryki.antlr.iql.IQLReader;
 import ai.koryki.iql.query.*;
 import ai.koryki.iql.logic.Normalizer;
@@ -33,6 +34,7 @@ public class Iql2Bean {
 
     private IQLParser.QueryContext script;
     private String description;
+    private PipelineMetrics metrics = PipelineMetrics.NOOP;
 
     public Iql2Bean(IQLReader reader) {
         this(reader.getQuery(), reader.getDescription());
@@ -45,15 +47,27 @@ public class Iql2Bean {
 
     public Query toScript() {
 
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
         Query bean = new Query();
         bean.setDescription(description);
         if (script.cte() != null) {
             bean.setBlock(toBlock(script.cte()));
         }
         bean.setSet(toSet(script.set()));
+        if (metrics.isEnabled()) {
+            metrics.record(PipelineMetrics.BEAN, System.nanoTime() - start);
+        }
         return bean;
     }
 
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics != null ? metrics : PipelineMetrics.NOOP;
+    }
+
     public List<Block> toBlock(IQLParser.CteContext cte) {
 
         List<Block> map = new ArrayList<>();
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.iql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Suggest known names close to a misspelled one, by edit distance.
+ */
+public class NameSuggester {
+
+    public static final int MAX_SUGGESTIONS = 3;
+
+    /**
+     * @return up to {@link #MAX_SUGGESTIONS} candidates, nearest first
+     */
+    public static List<String> nearest(String name, Collection<String> candidates) {
+
+        if (name == null) {
+            return new ArrayList<>();
+        }
+        String n = name.toLowerCase();
+        int max = Math.max(1, n.length() / 3);
+
+        Map<String, Integer> found = new TreeMap<>();
+        for (String c : candidates) {
+            int d = distance(n, c.toLowerCase(), max);
+            if (d <= max) {
+                found.put(c, d);
+            }
+        }
+        List<String> result = new ArrayList<>(found.keySet());
+        result.sort(Comparator.comparing(found::get));
+        return result.size() > MAX_SUGGESTIONS ? new ArrayList<>(result.subList(0, MAX_SUGGESTIONS)) : result;
+    }
+
+    /**
+     * Levenshtein distance, stops early and returns max + 1 when the distance exceeds max.
+     */
+    static int distance(String a, String b, int max) {
+
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[b.length()];
+    }
+}
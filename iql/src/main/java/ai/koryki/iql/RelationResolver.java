@@ -16,13 +16,17 @@
  */
 package ai.koryki.iql;
 
+import ai.koryki.antlr.Diagnostic;
 import ai.koryki.model.schema.Schema;
 import ai.koryki.model.schema.Relation;
+import ai.koryki.model.schema.SchemaDiff;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class RelationResolver {
@@ -32,6 +36,9 @@ public class RelationResolver {
     private boolean alignedOnly;
     private boolean qualifiedOnly;
     private boolean strict;
+    private volatile Adjacency adjacency;
+    // link -> (startTable, endTable) -> relation
+    private volatile Map<String, Map<String, String>> links;
 
 
     public RelationResolver(Schema db, Map<String, List<String>> linkToRelations) {
@@ -43,38 +50,228 @@ public class RelationResolver {
         this.linkToRelations = linkToRelations;
         this.alignedOnly = alignedOnly;
         this.qualifiedOnly = qualifiedOnly;
+        this.adjacency = new Adjacency(db.getRelations());
+        this.links = compileLinks(db, linkToRelations);
     }
 
-    private Predicate<Relation> typedAligned(String c, String s, String e) {
-        return (r) ->  r.getName().equals(c) && r.getStartTable().equals(s) && r.getEndTable().equals(e);
+    /**
+     * Derive from previous, whose schema and links differ from db and linkToRelations by diff.
+     * Only the index entries of changed relations and links are rebuilt.
+     */
+    protected RelationResolver(RelationResolver previous, Schema db, Map<String, List<String>> linkToRelations, SchemaDiff diff) {
+        this.db = db;
+        this.linkToRelations = linkToRelations;
+        this.alignedOnly = previous.alignedOnly;
+        this.qualifiedOnly = previous.qualifiedOnly;
+        this.strict = previous.strict;
+        this.adjacency = previous.adjacency;
+        this.links = previous.links;
+        patch(diff);
+    }
+
+    /**
+     * Follow a change already applied to the schema and links of this resolver, e.g. by
+     * {@link SchemaDiff#apply(Schema)} and {@link SchemaDiff#applyLinks(Map)}.
+     * The indexes are rebuilt aside and published only if the change is valid, so concurrent
+     * lookups see either the old or the new state; concurrent updates must be serialized by the caller.
+     *
+     * @throws IllegalArgumentException if a changed link names a relation missing in the schema,
+     * the resolver is left unchanged
+     */
+    public void update(SchemaDiff diff) {
+        patch(diff);
+    }
+
+    private void patch(SchemaDiff diff) {
+
+        Map<String, List<Relation>> pairs = new HashMap<>(adjacency.pairs);
+        for (SchemaDiff.Change<Relation> c : diff.getRelations()) {
+            Relation before = c.getBefore();
+            Relation after = c.getAfter();
+            int position = -1;
+            if (before != null) {
+                String k = key(before.getStartTable(), before.getEndTable());
+                List<Relation> list = new ArrayList<>(pairs.getOrDefault(k, Collections.emptyList()));
+                for (int i = 0; i < list.size() && position < 0; i++) {
+                    if (list.get(i).getName().equals(before.getName())) {
+                        list.remove(i);
+                        position = i;
+                    }
+                }
+                if (after != null && k.equals(key(after.getStartTable(), after.getEndTable())) && position >= 0) {
+                    list.add(position, after);
+                    after = null;
+                }
+                putPair(pairs, k, list);
+            }
+            if (after != null) {
+                String k = key(after.getStartTable(), after.getEndTable());
+                List<Relation> list = new ArrayList<>(pairs.getOrDefault(k, Collections.emptyList()));
+                list.add(after);
+                putPair(pairs, k, list);
+            }
+        }
+
+        Map<String, Map<String, String>> compiled = new HashMap<>(links);
+        List<String> dangling = new ArrayList<>();
+        for (SchemaDiff.Change<List<String>> c : diff.getLinks()) {
+            if (c.isRemoved()) {
+                compiled.remove(c.getName());
+            }
+        }
+        for (Map.Entry<String, List<String>> e : linkToRelations.entrySet()) {
+            boolean affected = diff.getLinks().stream().anyMatch(c -> c.getName().equals(e.getKey()))
+                    || e.getValue().stream().anyMatch(diff::isRelationChanged);
+            if (affected) {
+                compiled.put(e.getKey(), compileLink(db, e.getKey(), e.getValue(), dangling));
+            }
+        }
+        if (!dangling.isEmpty()) {
+            throw new IllegalArgumentException("unknown relations in links: " + String.join(", ", dangling));
+        }
+        adjacency = new Adjacency(db.getRelations(), pairs);
+        links = compiled;
+    }
+
+    private static void putPair(Map<String, List<Relation>> pairs, String key, List<Relation> list) {
+        if (list.isEmpty()) {
+            pairs.remove(key);
+        } else {
+            pairs.put(key, list);
+        }
+    }
+
+    /**
+     * Maps link and (startTable, endTable) to the first listed relation running that way, symmetric relations in both directions.
+     *
+     * @throws IllegalArgumentException if a link names a relation missing in the schema
+     */
+    private static Map<String, Map<String, String>> compileLinks(Schema db, Map<String, List<String>> linkToRelations) {
+
+        Map<String, Map<String, String>> table = new HashMap<>();
+        List<String> dangling = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : linkToRelations.entrySet()) {
+            table.put(entry.getKey(), compileLink(db, entry.getKey(), entry.getValue(), dangling));
+        }
+        if (!dangling.isEmpty()) {
+            throw new IllegalArgumentException("unknown relations in links: " + String.join(", ", dangling));
+        }
+        return table;
+    }
+
+    private static Map<String, String> compileLink(Schema db, String link, List<String> names, List<String> dangling) {
+        Map<String, String> table = new HashMap<>();
+        for (String name : names) {
+            Optional<Relation> o = db.getRelation(name);
+            if (!o.isPresent()) {
+                dangling.add(link + " -> " + name);
+                continue;
+            }
+            Relation r = o.get();
+            table.putIfAbsent(key(r.getStartTable(), r.getEndTable()), r.getName());
+            if (r.isSymmetric()) {
+                table.putIfAbsent(key(r.getEndTable(), r.getStartTable()), r.getName());
+            }
+        }
+        return table;
+    }
+
+    private List<Relation> typedAligned(String c, String s, String e) {
+        return named(c, between(s, e));
+    }
+    private List<Relation> typedReverse(String c, String s, String e) {
+        return named(c, between(e, s));
+    }
+    private List<Relation> untypedAligned(String c, String s, String e) {
+        return strict && c != null ? Collections.emptyList() : between(s, e);
     }
-    private Predicate<Relation> typedReverse(String c, String s, String e) {
-        return (r)  -> r.getName().equals(c) && r.getStartTable().equals(e) && r.getEndTable().equals(s);
+    private List<Relation> untypedReverse(String c, String s, String e) {
+        return strict && c != null ? Collections.emptyList() : between(e, s);
     }
-    private Predicate<Relation> untypedAligned(String c, String s, String e) {
-        return strict ? untypedAlignedStrict(c, s, e) :  untypedAlignedLenient(c, s, e);
+
+    private static List<Relation> named(String c, List<Relation> relations) {
+        if (c == null || relations.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Relation> result = new ArrayList<>(1);
+        for (Relation r : relations) {
+            if (r.getName().equals(c)) {
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return relations from startTable to endTable in schema order
+     */
+    private List<Relation> between(String startTable, String endTable) {
+        return adjacency().getOrDefault(key(startTable, endTable), Collections.emptyList());
     }
-    private Predicate<Relation> untypedReverse(String c, String s, String e) {
-        return strict ? untypedReverseStrict(c, s, e) :  untypedReverseLenient(c, s, e);
+
+    private static String key(String startTable, String endTable) {
+        return startTable + '\u0000' + endTable;
     }
 
-    private Predicate<Relation> untypedAlignedLenient(String c, String s, String e) {
-        return (r) ->r.getStartTable().equals(s) && r.getEndTable().equals(e);
+    private Map<String, List<Relation>> adjacency() {
+        Adjacency a = adjacency;
+        List<Relation> relations = db.getRelations();
+        if (a == null || a.source != relations || a.size != relations.size()) {
+            a = new Adjacency(relations);
+            adjacency = a;
+        }
+        return a.pairs;
     }
-    private Predicate<Relation> untypedReverseLenient(String c, String s, String e) {
-        return (r) ->r.getStartTable().equals(e) && r.getEndTable().equals(s);
+
+    /**
+     * Relations grouped by (startTable, endTable), rebuilt when the schema's relation list changes.
+     */
+    private static class Adjacency {
+
+        private final List<Relation> source;
+        private final int size;
+        private final Map<String, List<Relation>> pairs;
+
+        Adjacency(List<Relation> relations) {
+            this.source = relations;
+            this.size = relations.size();
+            Map<String, List<Relation>> map = new HashMap<>();
+            for (Relation r : relations) {
+                map.computeIfAbsent(key(r.getStartTable(), r.getEndTable()), k -> new ArrayList<>(1)).add(r);
+            }
+            this.pairs = map;
+        }
+
+        Adjacency(List<Relation> relations, Map<String, List<Relation>> pairs) {
+            this.source = relations;
+            this.size = relations.size();
+            this.pairs = pairs;
+        }
     }
-    private Predicate<Relation> untypedAlignedStrict(String c, String s, String e) {
-        return (r) ->c == null && r.getStartTable().equals(s) && r.getEndTable().equals(e);
+
+    /**
+     * @return schema tables with a name close to table
+     */
+    public List<String> suggestTables(String table) {
+        return NameSuggester.nearest(Bean2Sql.strip(table), db.getTables().stream().map(t -> t.getName()).collect(Collectors.toList()));
     }
-    private Predicate<Relation> untypedReverseStrict(String c, String s, String e) {
-        return (r) ->c == null && r.getStartTable().equals(e) && r.getEndTable().equals(s);
+
+    /**
+     * @return names of the relations between both tables, in either direction
+     */
+    public List<String> relationsBetween(String startTable, String endTable) {
+        String s = Bean2Sql.strip(startTable);
+        String e = Bean2Sql.strip(endTable);
+        List<String> names = between(s, e).stream().map(Relation::getName).collect(Collectors.toList());
+        if (!s.equals(e)) {
+            between(e, s).forEach(r -> names.add(r.getName()));
+        }
+        return names;
     }
 
     public boolean isTableInDatabase(String table) {
         String s = Bean2Sql.strip(table);
-        boolean r = db.getTables().stream().anyMatch(t -> t.getName().equals(s));
-        return r;
+        return db.getTable(s).isPresent();
     }
 
     private String resolveLink(String startTable, String endTable, String link) {
@@ -83,30 +280,20 @@ public class RelationResolver {
             return null;
         }
 
-        List<String> list = linkToRelations.get(link);
-
-        if (list == null) {
+        if (!linkToRelations.containsKey(link)) {
             if (strict) {
-                throw new RuntimeException("c'ant resolve link " + link);
+                throw new TranslationException(Diagnostic.Code.UNKNOWN_LINK, "c'ant resolve link " + link, link,
+                        NameSuggester.nearest(link, linkToRelations.keySet()));
             }
             return link;
         }
 
-        List<Relation> relations = list.stream().map(l -> db.getRelation(l).get()).collect(Collectors.toList());
-
-        String relation =  list.stream().filter(l -> {
-                Relation r = db.getRelation(l).get();
-                if (r.getStartTable().equals(startTable) && r.getEndTable().equals(endTable)) {
-                    return true;
-                } else if (r.isSymmetric() && r.getStartTable().equals(endTable) && r.getEndTable().equals(startTable)) {
-                    return true;
-                } else {
-                    return false;
-                }
-            }).map(l -> db.getRelation(l).get().getName()).findFirst().orElse(null);
+        Map<String, String> l = links.get(link);
+        String relation = l != null ? l.get(key(startTable, endTable)) : null;
 
         if (strict && relation == null) {
-            throw new RuntimeException("c'ant resolve link " + link + " " + startTable + " " + endTable);
+            throw new TranslationException(Diagnostic.Code.NO_RELATION, "c'ant resolve link " + link + " " + startTable + " " + endTable,
+                    link, relationsBetween(startTable, endTable));
         }
         return relation;
     }
@@ -151,10 +338,7 @@ public class RelationResolver {
         return Optional.empty();
     }
 
-    private Relation checkSingle(String startTable, String endTable, String relation, Predicate<Relation> predicate, boolean strict, boolean symmetricOnly) {
-        List<Relation> directed =
-                db.getRelations().stream().filter(predicate)
-                        .collect(Collectors.toList());
+    private Relation checkSingle(String startTable, String endTable, String relation, List<Relation> directed, boolean strict, boolean symmetricOnly) {
 
         Relation d = directed.size() == 1 ? directed.get(0) : null;
         if (d != null) {
@@ -162,7 +346,8 @@ public class RelationResolver {
                 return d;
             }
         } else if (strict && directed.size() > 1) {
-            throw new RuntimeException("must not find more than one relation: " + startTable +" " + endTable + " " + relation);
+            throw new TranslationException(Diagnostic.Code.AMBIGUOUS_RELATION, "must not find more than one relation: " + startTable +" " + endTable + " " + relation,
+                    relation, directed.stream().map(Relation::getName).collect(Collectors.toList()));
         }
         return null;
     }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.iql;
+
+import ai.koryki.antlr.PipelineMetrics;
+import ai.koryki.model.JsonUtil;
+import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.SchemaDiff;
+import ai.koryki.model.schema.Table;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Holds the current schema, links and resolver loaded from json files and reloads them when the files change.
+ * <p>
+ * A background thread waits for file events and, as fallback for file systems without them, compares
+ * modification time and size every poll interval. A new version is built completely, indexes included,
+ * before it replaces the current one, so callers that took a {@link Version} finish on it.
+ * A file that fails to load leaves the current version in place, unchanged files don't make a new version.
+ */
+public class SchemaRegistry implements Closeable {
+
+    public static final String RELOAD = "schema.reload";
+
+    private final Path schemaFile;
+    private final Path linksFile;
+    private final boolean alignedOnly;
+    private final boolean qualifiedOnly;
+    private final boolean strict;
+
+    private final AtomicReference<Version> current = new AtomicReference<>();
+    private PipelineMetrics metrics = PipelineMetrics.NOOP;
+
+    private volatile long lastReloadNanos;
+    private volatile long reloads;
+    private volatile long failedReloads;
+    private volatile Exception lastError;
+    private volatile SchemaDiff lastDiff;
+    private final List<BiConsumer<Version, SchemaDiff>> listeners = new CopyOnWriteArrayList<>();
+
+    private String stamp;
+    private Thread watcher;
+    private WatchService watchService;
+    private volatile boolean closed;
+
+    public SchemaRegistry(Path schemaFile, Path linksFile) throws IOException {
+        this(schemaFile, linksFile, false, false, false);
+    }
+
+    /**
+     * Load the files once, options are passed to the {@link SharedRelationResolver} of every version.
+     */
+    public SchemaRegistry(Path schemaFile, Path linksFile, boolean alignedOnly, boolean qualifiedOnly, boolean strict) throws IOException {
+        this.schemaFile = schemaFile;
+        this.linksFile = linksFile;
+        this.alignedOnly = alignedOnly;
+        this.qualifiedOnly = qualifiedOnly;
+        this.strict = strict;
+        synchronized (this) {
+            this.stamp = stamp();
+            current.set(load(1));
+        }
+    }
+
+    /**
+     * @return the version to use for one translation
+     */
+    public Version current() {
+        return current.get();
+    }
+
+    /**
+     * Load both files and publish them as the next version, unless nothing changed. The resolver is derived
+     * from the current one and listeners are told about the changes, see {@link SchemaDiff}.
+     *
+     * @return false if loading failed, see {@link #getLastError()}
+     */
+    public synchronized boolean reload() {
+        try {
+            stamp = stamp();
+            long start = System.nanoTime();
+            Version old = current.get();
+            Schema schema = readSchema();
+            Map<String, List<String>> links = readLinks();
+            SchemaDiff diff = SchemaDiff.compute(old.schema, old.links, schema, links);
+            if (!diff.isEmpty()) {
+                Version next = version(old.number + 1, schema, links, old.resolver.derive(schema, links, diff), start);
+                current.set(next);
+                lastDiff = diff;
+                listeners.forEach(l -> l.accept(next, diff));
+            }
+            lastError = null;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failedReloads++;
+            lastError = e;
+            return false;
+        }
+    }
+
+    private Version load(long number) throws IOException {
+        long start = System.nanoTime();
+        Schema schema = readSchema();
+        Map<String, List<String>> links = readLinks();
+        SharedRelationResolver resolver = new SharedRelationResolver(schema, links, alignedOnly, qualifiedOnly, strict, SharedRelationResolver.DEFAULT_MAX_ENTRIES);
+        return version(number, schema, links, resolver, start);
+    }
+
+    private Schema readSchema() throws IOException {
+        try (InputStream in = Files.newInputStream(schemaFile)) {
+            return JsonUtil.streamDatabaseJson(in, true);
+        }
+    }
+
+    private Map<String, List<String>> readLinks() throws IOException {
+        return linksFile != null ? JsonUtil.readHashSetFromJson(Files.newInputStream(linksFile)) : Collections.emptyMap();
+    }
+
+    private Version version(long number, Schema schema, Map<String, List<String>> links, SharedRelationResolver resolver, long start) {
+
+        // builds the name indexes, of the columns too
+        schema.getTable("");
+        schema.getRelation("");
+        for (Table t : schema.getTables()) {
+            t.getColumn("");
+        }
+
+        long nanos = System.nanoTime() - start;
+        lastReloadNanos = nanos;
+        reloads++;
+        if (metrics.isEnabled()) {
+            metrics.record(RELOAD, nanos);
+        }
+        return new Version(number, schema, links, resolver);
+    }
+
+    /**
+     * Called with the new version and its changes after it was published, e.g. to invalidate
+     * a {@link TranslationCache} with {@link TranslationCache#invalidate(SchemaDiff, long)}.
+     */
+    public void addListener(BiConsumer<Version, SchemaDiff> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return changes of the last published version, null for the first one
+     */
+    public SchemaDiff getLastDiff() {
+        return lastDiff;
+    }
+
+    /**
+     * Start watching both files.
+     *
+     * @param pollMillis interval to compare file stamps when no event arrives
+     */
+    public synchronized void start(long pollMillis) {
+
+        if (watcher != null || closed) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            register(schemaFile);
+            if (linksFile != null) {
+                register(linksFile);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            // polling only
+            watchService = null;
+        }
+        watcher = new Thread(() -> watch(pollMillis), "koryki-schema-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void register(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    private void watch(long pollMillis) {
+
+        while (!closed) {
+            try {
+                if (watchService != null) {
+                    WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                        // editors write in several steps, let them finish
+                        Thread.sleep(Math.min(pollMillis, 100));
+                    }
+                } else {
+                    Thread.sleep(pollMillis);
+                }
+                reloadIfChanged();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+    private synchronized void reloadIfChanged() {
+        String s;
+        try {
+            s = stamp();
+        } catch (IOException e) {
+            // file is being replaced
+            return;
+        }
+        if (!s.equals(stamp)) {
+            reload();
+        }
+    }
+
+    private String stamp() throws IOException {
+        return stamp(schemaFile) + "|" + (linksFile != null ? stamp(linksFile) : "");
+    }
+
+    private static String stamp(Path file) throws IOException {
+        BasicFileAttributes a = Files.readAttributes(file, BasicFileAttributes.class);
+        return a.lastModifiedTime().toMillis() + ":" + a.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread w;
+        synchronized (this) {
+            closed = true;
+            w = watcher;
+            watcher = null;
+            if (watchService != null) {
+                watchService.close();
+            }
+        }
+        if (w != null) {
+            w.interrupt();
+        }
+    }
+
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public long getVersion() {
+        return current.get().number;
+    }
+
+    public long getLastReloadNanos() {
+        return lastReloadNanos;
+    }
+
+    /**
+     * @return successful loads, the initial one included
+     */
+    public long getReloads() {
+        return reloads;
+    }
+
+    public long getFailedReloads() {
+        return failedReloads;
+    }
+
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Schema, links and resolver loaded together, never modified once published.
+     */
+    public static class Version {
+
+        private final long number;
+        private final Schema schema;
+        private final Map<String, List<String>> links;
+        private final SharedRelationResolver resolver;
+
+        private Version(long number, Schema schema, Map<String, List<String>> links, SharedRelationResolver resolver) {
+            this.number = number;
+            this.schema = schema;
+            this.links = Collections.unmodifiableMap(links);
+            this.resolver = resolver;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        public Schema getSchema() {
+            return schema;
+        }
+
+        public Map<String, List<String>> getLinks() {
+            return links;
+        }
+
+        public SharedRelationResolver getResolver() {
+            return resolver;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.iql;
+
+import ai.koryki.antlr.Diagnostic;
+import ai.koryki.iql.query.Column;
+import ai.koryki.iql.query.Exists;
+import ai.koryki.iql.query.Join;
+import ai.koryki.iql.query.Query;
+import ai.koryki.iql.query.Select;
+import ai.koryki.iql.query.Table;
+import ai.koryki.model.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Check a query bean against the schema before translation. In contrast to {@link Bean2Sql}, which stops
+ * at the first problem, all unknown tables, aliases, columns and relations are reported at once,
+ * with the nearest schema names as fixes.
+ */
+public class SchemaValidator {
+
+    private final RelationResolver resolver;
+
+    public SchemaValidator(RelationResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    public List<Diagnostic> validate(Query query) {
+
+        Map<String, Table> blocks = Bean2Sql.idToTableMap(query.getBlock());
+        // alias to schema tables, null for block references
+        Map<String, Set<String>> aliases = new LinkedHashMap<>();
+        List<Diagnostic> diagnostics = new ArrayList<>();
+
+        new Walker().walk(query, new DefaultVisitor() {
+            @Override
+            public void visit(Deque<Object> deque, Table table) {
+                String name = table.getName();
+                String key = table.getAlias() != null ? table.getAlias() : name;
+                Set<String> tables = aliases.computeIfAbsent(key, k -> new LinkedHashSet<>());
+                String schemaTable = schemaTable(name, blocks);
+                if (resolver.isTableInDatabase(name)) {
+                    tables.add(schemaTable);
+                } else if (!blocks.containsKey(name)) {
+                    List<String> fixes = resolver.suggestTables(name);
+                    fixes.addAll(NameSuggester.nearest(name, blocks.keySet()));
+                    diagnostics.add(TranslationException.diagnostic(Diagnostic.Code.UNKNOWN_TABLE,
+                            "unknown table: " + name, name, fixes));
+                }
+            }
+
+            @Override
+            public void visit(Deque<Object> deque, Join join) {
+                Table left = parent(deque.peek());
+                if (left != null) {
+                    relation(left, join, blocks, diagnostics);
+                }
+            }
+        });
+
+        new Walker().walk(query, new DefaultVisitor() {
+            @Override
+            public void visit(Deque<Object> deque, Column column) {
+                if (column.getAlias() == null) {
+                    return;
+                }
+                Set<String> tables = aliases.get(column.getAlias());
+                if (tables == null) {
+                    diagnostics.add(TranslationException.diagnostic(Diagnostic.Code.UNKNOWN_ALIAS,
+                            "unknown alias: " + column.getAlias(), column.getAlias(),
+                            NameSuggester.nearest(column.getAlias(), aliases.keySet())));
+                    return;
+                }
+                column(column, tables, diagnostics);
+            }
+        });
+        return diagnostics;
+    }
+
+    private void column(Column column, Set<String> tables, List<Diagnostic> diagnostics) {
+
+        Schema db = resolver.getDb();
+        String col = Bean2Sql.strip(column.getCol());
+        List<String> known = new ArrayList<>();
+        for (String t : tables) {
+            Optional<ai.koryki.model.schema.Table> table = db.getTable(t);
+            if (!table.isPresent() || table.get().getColumn(col).isPresent()) {
+                return;
+            }
+            table.get().getColumns().forEach(c -> known.add(c.getName()));
+        }
+        if (!known.isEmpty()) {
+            diagnostics.add(TranslationException.diagnostic(Diagnostic.Code.UNKNOWN_COLUMN,
+                    "unknown column: " + column.getAlias() + "." + column.getCol(), column.getCol(),
+                    NameSuggester.nearest(col, known)));
+        }
+    }
+
+    private void relation(Table left, Join join, Map<String, Table> blocks, List<Diagnostic> diagnostics) {
+
+        Table start = join.isInvers() ? join.getTable() : left;
+        Table end = join.isInvers() ? left : join.getTable();
+        String startTable = schemaTable(start.getName(), blocks);
+        String endTable = schemaTable(end.getName(), blocks);
+        if (startTable == null || endTable == null) {
+            // reported as unknown table
+            return;
+        }
+        try {
+            if (!resolver.find(startTable, endTable, join.getCrit()).isPresent()) {
+                diagnostics.add(TranslationException.diagnostic(Diagnostic.Code.NO_RELATION,
+                        "no relation " + (join.getCrit() != null ? join.getCrit() + " " : "") + "from " + startTable + " to " + endTable,
+                        join.getCrit(), resolver.relationsBetween(startTable, endTable)));
+            }
+        } catch (TranslationException e) {
+            diagnostics.add(e.getDiagnostic());
+        }
+    }
+
+    private static Table parent(Object o) {
+        if (o instanceof Select) {
+            return ((Select) o).getStart();
+        } else if (o instanceof Join) {
+            return ((Join) o).getTable();
+        } else if (o instanceof Exists) {
+            return ((Exists) o).getTable();
+        }
+        return null;
+    }
+
+    /**
+     * @return lower case schema table, block references are followed to their leading table
+     */
+    private String schemaTable(String name, Map<String, Table> blocks) {
+        Set<String> seen = new HashSet<>();
+        while (!resolver.isTableInDatabase(name)) {
+            Table t = blocks.get(name);
+            if (t == null || !seen.add(name)) {
+                return null;
+            }
+            name = t.getName();
+        }
+        return Identifier.normal(Identifier.lowercase, Bean2Sql.strip(name));
+    }
+}
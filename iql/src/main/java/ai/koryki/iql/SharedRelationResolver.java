@@ -0,0 +1,188 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.iql;
+
+import ai.koryki.model.schema.Relation;
+import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.SchemaDiff;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RelationResolver with options fixed at construction and a bounded memo of find results,
+ * negative ones included. Safe to share between threads as long as the schema is not modified.
+ */
+public class SharedRelationResolver extends RelationResolver {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<Key, Optional<Relation>> memo = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SharedRelationResolver(Schema db, Map<String, List<String>> linkToRelations) {
+        this(db, linkToRelations, false, false, false, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries maximum number of memoized find results
+     */
+    public SharedRelationResolver(Schema db, Map<String, List<String>> linkToRelations, boolean alignedOnly, boolean qualifiedOnly, boolean strict, int maxEntries) {
+        super(db, linkToRelations, alignedOnly, qualifiedOnly);
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("invalid limit: " + maxEntries);
+        }
+        super.setStrict(strict);
+        this.maxEntries = maxEntries;
+    }
+
+    private SharedRelationResolver(SharedRelationResolver previous, Schema db, Map<String, List<String>> linkToRelations, SchemaDiff diff) {
+        super(previous, db, linkToRelations, diff);
+        this.maxEntries = previous.maxEntries;
+        Set<String> links = new HashSet<>();
+        diff.getLinks().forEach(c -> links.add(c.getName()));
+        previous.memo.forEach((k, v) -> {
+            if (!diff.isAffected(k.startTable) && !diff.isAffected(k.endTable) && !links.contains(k.relation)) {
+                memo.put(k, v);
+            }
+        });
+    }
+
+    /**
+     * Resolver for the next version of schema and links, sharing the index entries and memoized
+     * results this one has for tables not affected by diff.
+     *
+     * @param diff from this resolver's schema and links to db and linkToRelations
+     */
+    public SharedRelationResolver derive(Schema db, Map<String, List<String>> linkToRelations, SchemaDiff diff) {
+        return new SharedRelationResolver(this, db, linkToRelations, diff);
+    }
+
+    /**
+     * Resolution errors are not memoized, they are thrown again on every call.
+     */
+    @Override
+    public Optional<Relation> find(String startTable, String endTable, String relation) {
+
+        Key key = new Key(startTable, endTable, relation);
+        Optional<Relation> result = memo.get(key);
+        if (result != null) {
+            hits.incrementAndGet();
+            return result;
+        }
+        misses.incrementAndGet();
+
+        result = super.find(startTable, endTable, relation);
+        if (memo.size() >= maxEntries) {
+            evict();
+        }
+        memo.putIfAbsent(key, result);
+        return result;
+    }
+
+    /**
+     * Drop arbitrary entries until there is room for a new one, other threads may insert meanwhile.
+     */
+    private void evict() {
+        Iterator<Key> i = memo.keySet().iterator();
+        while (memo.size() >= maxEntries && i.hasNext()) {
+            i.next();
+            i.remove();
+        }
+    }
+
+    /**
+     * Immutable, see {@link #derive(Schema, Map, SchemaDiff)}.
+     */
+    @Override
+    public void update(SchemaDiff diff) {
+        throw new UnsupportedOperationException("immutable, derive a new resolver");
+    }
+
+    @Override
+    public void setAlignedOnly(boolean alignedOnly) {
+        throw new UnsupportedOperationException("options are fixed at construction");
+    }
+
+    @Override
+    public void setQualifiedOnly(boolean qualifiedOnly) {
+        throw new UnsupportedOperationException("options are fixed at construction");
+    }
+
+    @Override
+    public void setStrict(boolean strict) {
+        throw new UnsupportedOperationException("options are fixed at construction");
+    }
+
+    public void clear() {
+        memo.clear();
+    }
+
+    public int getSize() {
+        return memo.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static final class Key {
+
+        private final String startTable;
+        private final String endTable;
+        private final String relation;
+        private final int hash;
+
+        Key(String startTable, String endTable, String relation) {
+            this.startTable = startTable;
+            this.endTable = endTable;
+            this.relation = relation;
+            this.hash = Objects.hash(startTable, endTable, relation);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return Objects.equals(startTable, k.startTable) && Objects.equals(endTable, k.endTable) && Objects.equals(relation, k.relation);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
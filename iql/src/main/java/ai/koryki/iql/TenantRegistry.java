@@ -0,0 +1,382 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.iql;
+
+import ai.koryki.model.JsonUtil;
+import ai.koryki.model.model.Entity;
+import ai.koryki.model.model.Link;
+import ai.koryki.model.model.Model;
+import ai.koryki.model.model.Pair;
+import ai.koryki.model.model.Property;
+import ai.koryki.model.schema.Column;
+import ai.koryki.model.schema.Relation;
+import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.Table;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Schemas, links, models and resolvers of many tenants, loaded on first use and evicted
+ * when their estimated size exceeds a budget.
+ * <p>
+ * Concurrent requests for a tenant that is not loaded yet wait for a single load. Hits only
+ * update counters, the least recently or least frequently used tenants are found by a scan
+ * when the budget is exceeded. Callers may keep using an evicted tenant, it is loaded again
+ * on the next request.
+ */
+public class TenantRegistry {
+
+    public enum Policy { LRU, LFU }
+
+    // map node, key, optional and the key's table names
+    static final long MEMO_ENTRY_BYTES = 200;
+
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_.-]*");
+
+    private final Loader loader;
+    private final long maxBytes;
+    private final Policy policy;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> tenants = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public TenantRegistry(Loader loader, long maxBytes) {
+        this(loader, maxBytes, Policy.LRU);
+    }
+
+    public TenantRegistry(Loader loader, long maxBytes, Policy policy) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("invalid limit: " + maxBytes);
+        }
+        this.loader = loader;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * Loads the tenant's files from dir/id/: schema.json, links.json and model.json, the latter two optional.
+     */
+    public static Loader directory(Path dir) {
+        return id -> {
+            if (!TENANT_ID.matcher(id).matches()) {
+                throw new IllegalArgumentException("invalid tenant id: " + id);
+            }
+            Path d = dir.resolve(id);
+            Schema schema;
+            try (InputStream in = Files.newInputStream(d.resolve("schema.json"))) {
+                schema = JsonUtil.streamDatabaseJson(in, true);
+            }
+            Path l = d.resolve("links.json");
+            Map<String, List<String>> links = Files.exists(l) ? JsonUtil.readHashSetFromJson(Files.newInputStream(l)) : Collections.emptyMap();
+            Path m = d.resolve("model.json");
+            Model model = Files.exists(m) ? JsonUtil.readModelJson(Files.newInputStream(m)) : null;
+            return new Tenant(id, schema, links, model);
+        };
+    }
+
+    /**
+     * @return the tenant, loading it if necessary, concurrent callers share the load
+     * @throws IOException if the load failed, it is tried again on the next call
+     */
+    public Tenant get(String id) throws IOException {
+
+        CompletableFuture<Entry> f = tenants.get(id);
+        if (f == null) {
+            CompletableFuture<Entry> created = new CompletableFuture<>();
+            f = tenants.putIfAbsent(id, created);
+            if (f == null) {
+                misses.incrementAndGet();
+                load(id, created);
+                f = created;
+            } else {
+                hits.incrementAndGet();
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+
+        Entry e;
+        try {
+            e = f.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw ex;
+        }
+        e.touch(clock.incrementAndGet());
+        return e.tenant;
+    }
+
+    private void load(String id, CompletableFuture<Entry> future) {
+        Entry e;
+        try {
+            e = new Entry(loader.load(id));
+        } catch (IOException | RuntimeException ex) {
+            failures.incrementAndGet();
+            tenants.remove(id, future);
+            future.completeExceptionally(ex);
+            return;
+        }
+        e.touch(clock.incrementAndGet());
+        bytes.addAndGet(e.tenant.getBytes());
+        future.complete(e);
+        evict(id);
+    }
+
+    /**
+     * Evict by policy until the budget is met, the tenant just loaded stays even if it alone exceeds it.
+     */
+    private synchronized void evict(String keep) {
+        while (bytes.get() > maxBytes) {
+            String victim = null;
+            CompletableFuture<Entry> victimFuture = null;
+            long victimScore = Long.MAX_VALUE;
+            for (Map.Entry<String, CompletableFuture<Entry>> t : tenants.entrySet()) {
+                CompletableFuture<Entry> f = t.getValue();
+                if (t.getKey().equals(keep) || !f.isDone() || f.isCompletedExceptionally()) {
+                    continue;
+                }
+                Entry e = f.join();
+                long score = policy == Policy.LRU ? e.lastAccess : e.uses.get();
+                if (score < victimScore) {
+                    victim = t.getKey();
+                    victimFuture = f;
+                    victimScore = score;
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            remove(victim, victimFuture);
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drop the tenant, e.g. after its files changed.
+     */
+    public void invalidate(String id) {
+        CompletableFuture<Entry> f = tenants.get(id);
+        if (f != null && f.isDone()) {
+            remove(id, f);
+        }
+    }
+
+    private void remove(String id, CompletableFuture<Entry> f) {
+        if (tenants.remove(id, f) && !f.isCompletedExceptionally()) {
+            bytes.addAndGet(-f.join().tenant.getBytes());
+        }
+    }
+
+    public boolean isLoaded(String id) {
+        CompletableFuture<Entry> f = tenants.get(id);
+        return f != null && f.isDone() && !f.isCompletedExceptionally();
+    }
+
+    public int getSize() {
+        return tenants.size();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        Tenant load(String id) throws IOException;
+    }
+
+    private static class Entry {
+
+        private final Tenant tenant;
+        private volatile long lastAccess;
+        private final AtomicLong uses = new AtomicLong();
+
+        Entry(Tenant tenant) {
+            this.tenant = tenant;
+        }
+
+        void touch(long tick) {
+            lastAccess = tick;
+            uses.incrementAndGet();
+        }
+    }
+
+    /**
+     * A tenant's schema, links, optional model and the resolver compiled from them.
+     * The resolver's memo is bounded, so its full size is part of the estimate from the start.
+     */
+    public static class Tenant {
+
+        public static final int DEFAULT_MEMO_ENTRIES = 1_000;
+
+        private final String id;
+        private final Schema schema;
+        private final Map<String, List<String>> links;
+        private final Model model;
+        private final SharedRelationResolver resolver;
+        private final long bytes;
+
+        public Tenant(String id, Schema schema, Map<String, List<String>> links, Model model) {
+            this(id, schema, links, model, DEFAULT_MEMO_ENTRIES);
+        }
+
+        /**
+         * @param memoEntries bound of the resolver's memo
+         */
+        public Tenant(String id, Schema schema, Map<String, List<String>> links, Model model, int memoEntries) {
+            this.id = id;
+            this.schema = schema;
+            this.links = Collections.unmodifiableMap(links);
+            this.model = model;
+            this.resolver = new SharedRelationResolver(schema, links, false, false, false, memoEntries);
+            // builds the name indexes, of the columns too
+            schema.getTable("");
+            schema.getRelation("");
+            for (Table t : schema.getTables()) {
+                t.getColumn("");
+            }
+            this.bytes = estimate(schema, links) + estimate(model) + MEMO_ENTRY_BYTES * memoEntries;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Schema getSchema() {
+            return schema;
+        }
+
+        public Map<String, List<String>> getLinks() {
+            return links;
+        }
+
+        public Model getModel() {
+            return model;
+        }
+
+        public SharedRelationResolver getResolver() {
+            return resolver;
+        }
+
+        /**
+         * @return estimated heap size of schema, links, model, indexes and the full resolver memo
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Rough size: object headers, list and index entries plus 2 bytes per character.
+     */
+    static long estimate(Schema schema, Map<String, List<String>> links) {
+        long b = 256;
+        for (Table t : schema.getTables()) {
+            b += 160 + chars(t.getName(), t.getComment(), t.getDescription());
+            for (Column c : t.getColumns()) {
+                b += 160 + chars(c.getName(), c.getComment(), c.getDescription());
+            }
+        }
+        for (Relation r : schema.getRelations()) {
+            // object, lists, name and adjacency index entries
+            b += 260 + chars(r.getName(), r.getComment(), r.getDescription(), r.getStartTable(), r.getEndTable())
+                    + 48L * (r.getStartColumns().size() + r.getEndColumns().size());
+        }
+        for (Map.Entry<String, List<String>> e : links.entrySet()) {
+            b += 120 + chars(e.getKey()) + 80L * e.getValue().size();
+        }
+        return b;
+    }
+
+    static long estimate(Model model) {
+        if (model == null) {
+            return 0;
+        }
+        long b = 256 + chars(model.getName(), model.getComment(), model.getDescription());
+        if (model.getEntities() != null) {
+            for (Entity e : model.getEntities()) {
+                b += 120 + chars(e.getName(), e.getComment(), e.getDescription());
+                if (e.getProperties() != null) {
+                    for (Property p : e.getProperties()) {
+                        b += 80 + chars(p.getName(), p.getComment(), p.getDescription());
+                    }
+                }
+            }
+        }
+        if (model.getLinks() != null) {
+            for (Link l : model.getLinks()) {
+                b += 120 + chars(l.getName(), l.getComment(), l.getDescription());
+                for (Pair p : l.getPairs()) {
+                    b += 40 + chars(p.getStart(), p.getEnd());
+                }
+            }
+        }
+        return b;
+    }
+
+    private static long chars(String... strings) {
+        long c = 0;
+        for (String s : strings) {
+            if (s != null) {
+                c += 40 + 2L * s.length();
+            }
+        }
+        return c;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.iql;
+
+import ai.koryki.iql.query.Query;
+import ai.koryki.iql.query.Table;
+import ai.koryki.model.schema.SchemaDiff;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache for translations, e.g. SQL by query text, that remembers the schema tables
+ * each translation reads. A schema change only drops the translations of affected tables.
+ * <p>
+ * Entries carry the schema version they were translated against. A translation that started before
+ * the last invalidation is not kept, it may have read tables the new version changed.
+ */
+public class TranslationCache<V> {
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+    // schema table, lower case without quotes, to keys of translations reading it
+    private final Map<String, Set<String>> byTable = new HashMap<>();
+    // schema version of the last invalidation
+    private long version;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public TranslationCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("invalid limit: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public synchronized V get(String key) {
+        Entry<V> e = map.get(key);
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return e.value;
+    }
+
+    /**
+     * Keep value for the tables query reads.
+     *
+     * @param version schema version value was translated against
+     * @return false if value is older than the last invalidation or the kept value and was not kept
+     */
+    public boolean put(String key, long version, Query query, V value) {
+        return put(key, version, tables(query), value);
+    }
+
+    public synchronized boolean put(String key, long version, Set<String> tables, V value) {
+
+        Entry<V> current = map.get(key);
+        if (version < this.version || current != null && version < current.version) {
+            return false;
+        }
+        remove(key);
+        map.put(key, new Entry<>(value, version, tables));
+        for (String t : tables) {
+            byTable.computeIfAbsent(t, k -> new HashSet<>()).add(key);
+        }
+
+        Iterator<Map.Entry<String, Entry<V>>> i = map.entrySet().iterator();
+        while (map.size() > maxEntries && i.hasNext()) {
+            Map.Entry<String, Entry<V>> eldest = i.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            i.remove();
+            unindex(eldest.getKey(), eldest.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Drop the translations reading a table affected by diff, later puts of translations
+     * against older versions are rejected.
+     *
+     * @param version schema version diff leads to
+     * @return number of dropped translations
+     */
+    public synchronized int invalidate(SchemaDiff diff, long version) {
+        this.version = Math.max(this.version, version);
+        int removed = 0;
+        for (String t : diff.getAffectedTables()) {
+            Set<String> keys = byTable.remove(t);
+            if (keys != null) {
+                for (String k : keys.toArray(new String[0])) {
+                    if (remove(k)) {
+                        removed++;
+                    }
+                }
+            }
+        }
+        invalidations.addAndGet(removed);
+        return removed;
+    }
+
+    private boolean remove(String key) {
+        Entry<V> e = map.remove(key);
+        if (e == null) {
+            return false;
+        }
+        unindex(key, e);
+        return true;
+    }
+
+    private void unindex(String key, Entry<V> e) {
+        for (String t : e.tables) {
+            Set<String> keys = byTable.get(t);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    byTable.remove(t);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return schema tables read by the query, lower case without quotes, blocks excluded
+     */
+    public static Set<String> tables(Query query) {
+        Map<String, Table> blocks = Bean2Sql.idToTableMap(query.getBlock());
+        Set<String> tables = new HashSet<>();
+        new Walker().walk(query, new DefaultVisitor() {
+            @Override
+            public void visit(Deque<Object> deque, Table table) {
+                if (!blocks.containsKey(table.getName())) {
+                    tables.add(Bean2Sql.strip(table.getName()));
+                }
+            }
+        });
+        return tables;
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        byTable.clear();
+    }
+
+    /**
+     * @return schema version of the last invalidation
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized int getSize() {
+        return map.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long version;
+        private final Set<String> tables;
+
+        private Entry(V value, long version, Set<String> tables) {
+            this.value = value;
+            this.version = version;
+            this.tables = tables;
+        }
+    }
+}
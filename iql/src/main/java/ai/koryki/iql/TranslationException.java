@@ -0,0 +1,51 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.iql;
+
+import ai.koryki.antlr.Diagnostic;
+
+import java.util.List;
+
+/**
+ * Failure translating a query bean to SQL, e.g. a table or relation missing in the schema.
+ */
+public class TranslationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Diagnostic diagnostic;
+
+    public TranslationException(Diagnostic diagnostic) {
+        super(diagnostic.getMessage());
+        this.diagnostic = diagnostic;
+    }
+
+    public TranslationException(Diagnostic.Code code, String msg, String offending, List<String> fixes) {
+        this(diagnostic(code, msg, offending, fixes));
+    }
+
+    public static Diagnostic diagnostic(Diagnostic.Code code, String msg, String offending, List<String> fixes) {
+        Diagnostic d = new Diagnostic(code, msg);
+        d.setOffending(offending);
+        d.setFixes(fixes);
+        return d;
+    }
+
+    public Diagnostic getDiagnostic() {
+        return diagnostic;
+    }
+}
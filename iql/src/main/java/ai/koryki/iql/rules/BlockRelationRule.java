@@ -16,8 +16,10 @@
  */
 package ai.koryki.iql.rules;
 
+import ai.koryki.antlr.Diagnostic;
 import ai.koryki.iql.Identifier;
 import ai.koryki.iql.RelationResolver;
+import ai.koryki.iql.TranslationException;
 import ai.koryki.iql.query.*;
 import ai.koryki.model.schema.Relation;
 
@@ -105,7 +107,8 @@ public class BlockRelationRule {
         Optional<Relation> o = resolver.find(startTable, endTable, crit);
 
         if (!o.isPresent()) {
-            throw new RuntimeException(msg +  " " + crit + " " + right.getName());
+            throw new TranslationException(Diagnostic.Code.NO_RELATION, msg +  " " + crit + " " + right.getName(), crit,
+                    resolver.relationsBetween(startTable, endTable));
         }
         Relation r = o.get();
 
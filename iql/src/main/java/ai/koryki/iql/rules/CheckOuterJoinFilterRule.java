@@ -16,7 +16,9 @@
  */
 package ai.koryki.iql.rules;
 
+import ai.koryki.antlr.Diagnostic;
 import ai.koryki.iql.DefaultVisitor;
+import ai.koryki.iql.TranslationException;
 import ai.koryki.iql.Visitor;
 import ai.koryki.iql.Walker;
 import ai.koryki.iql.query.Column;
@@ -24,6 +26,7 @@ import ai.koryki.iql.query.Join;
 import ai.koryki.iql.query.LogicalExpression;
 import ai.koryki.iql.query.Query;
 
+import java.util.ArrayList;
 import java.util.Deque;
 
 public class CheckOuterJoinFilterRule {
@@ -58,7 +61,8 @@ public class CheckOuterJoinFilterRule {
         public void visit(Deque<Object> deque, Column column) {
 
             if (column.getAlias().equals(alias)) {
-                throw new RuntimeException("outer joined table must not be used in all-filter: " + alias);
+                throw new TranslationException(Diagnostic.Code.OUTER_JOIN_FILTER,
+                        "outer joined table must not be used in all-filter: " + alias, alias, new ArrayList<>());
             }
         }
     }
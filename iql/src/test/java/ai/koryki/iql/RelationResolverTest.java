@@ -0,0 +1,247 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.iql;
+
+import ai.koryki.antlr.Diagnostic;
+import ai.koryki.model.schema.Relation;
+import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.SchemaDiff;
+import ai.koryki.model.schema.Table;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RelationResolverTest {
+
+    @Test
+    public void find() {
+
+        Schema schema = new Schema("s");
+        schema.addTable(new Table("orders"));
+        schema.addTable(new Table("customers"));
+        schema.addTable(new Table("employees"));
+        Relation placed = relation("orders_customers", "orders", "customers");
+        Relation sold = relation("orders_employees", "orders", "employees");
+        Relation reports = relation("employees_reports_to", "employees", "employees");
+        Relation mentors = relation("employees_mentors", "employees", "employees");
+        schema.addRelation(placed);
+        schema.addRelation(sold);
+        schema.addRelation(reports);
+        schema.addRelation(mentors);
+
+        RelationResolver resolver = new RelationResolver(schema, new HashMap<>());
+
+        assertSame(placed, resolver.find("orders", "customers", null).get());
+        assertSame(placed, resolver.find("ORDERS", "customers", null).get());
+        assertSame(placed, resolver.find("customers", "orders", null).get());
+        assertSame(sold, resolver.find("orders", "employees", "orders_employees").get());
+        assertSame(sold, resolver.find("employees", "orders", "orders_employees").get());
+        // unknown name falls back to the untyped probe
+        assertSame(placed, resolver.find("orders", "customers", "nonsense").get());
+        assertSame(reports, resolver.find("employees", "employees", "employees_reports_to").get());
+        assertFalse(resolver.find("employees", "employees", null).isPresent());
+        assertFalse(resolver.find("customers", "employees", null).isPresent());
+        assertEquals(Arrays.asList("employees_reports_to", "employees_mentors"), resolver.relationsBetween("employees", "employees"));
+        assertEquals(Collections.singletonList("orders_customers"), resolver.relationsBetween("customers", "orders"));
+
+        resolver.setAlignedOnly(true);
+        assertFalse(resolver.find("customers", "orders", null).isPresent());
+        resolver.setAlignedOnly(false);
+
+        resolver.setStrict(true);
+        assertSame(placed, resolver.find("orders", "customers", null).get());
+        resolver.setStrict(false);
+
+        // the index follows the schema
+        Relation second = relation("orders_customers_billing", "orders", "customers");
+        schema.addRelation(second);
+        assertFalse(resolver.find("orders", "customers", null).isPresent());
+        assertSame(second, resolver.find("orders", "customers", "orders_customers_billing").get());
+
+        // same name twice between the same tables is ambiguous
+        schema.addRelation(relation("orders_customers", "orders", "customers"));
+        TranslationException ex = assertThrows(TranslationException.class, () -> resolver.find("orders", "customers", "orders_customers"));
+        assertEquals(Diagnostic.Code.AMBIGUOUS_RELATION, ex.getDiagnostic().getCode());
+    }
+
+    @Test
+    public void links() {
+
+        Schema schema = new Schema("s");
+        Relation placed = relation("orders_customers", "orders", "customers");
+        Relation reports = relation("employees_reports_to", "employees", "employees");
+        Relation managed = relation("customers_employees", "customers", "employees");
+        managed.setSymmetric(true);
+        schema.addRelation(placed);
+        schema.addRelation(reports);
+        schema.addRelation(managed);
+
+        Map<String, List<String>> links = new HashMap<>();
+        links.put("placed", Collections.singletonList("orders_customers"));
+        links.put("manager", Arrays.asList("employees_reports_to", "customers_employees"));
+
+        RelationResolver resolver = new RelationResolver(schema, links);
+        resolver.setStrict(true);
+        assertSame(placed, resolver.find("orders", "customers", "placed").get());
+        assertSame(reports, resolver.find("employees", "employees", "manager").get());
+        assertSame(managed, resolver.find("customers", "employees", "manager").get());
+        assertSame(managed, resolver.find("employees", "customers", "manager").get());
+
+        TranslationException ex = assertThrows(TranslationException.class, () -> resolver.find("customers", "orders", "placed"));
+        assertEquals(Diagnostic.Code.NO_RELATION, ex.getDiagnostic().getCode());
+        ex = assertThrows(TranslationException.class, () -> resolver.find("orders", "customers", "placd"));
+        assertEquals(Diagnostic.Code.UNKNOWN_LINK, ex.getDiagnostic().getCode());
+
+        links.put("sold", Collections.singletonList("orders_employees"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new RelationResolver(schema, links));
+        assertTrue(e.getMessage().contains("orders_employees"));
+    }
+
+    @Test
+    public void shared() {
+
+        Schema schema = new Schema("s");
+        Relation placed = relation("orders_customers", "orders", "customers");
+        schema.addRelation(placed);
+        schema.addRelation(relation("employees_reports_to", "employees", "employees"));
+        schema.addRelation(relation("employees_mentors", "employees", "employees"));
+        Map<String, List<String>> links = new HashMap<>();
+        links.put("placed", Collections.singletonList("orders_customers"));
+
+        SharedRelationResolver resolver = new SharedRelationResolver(schema, links, true, false, true, 2);
+        assertThrows(UnsupportedOperationException.class, () -> resolver.setStrict(false));
+        assertTrue(resolver.isStrict());
+
+        IntStream.range(0, 1000).parallel().forEach(i -> {
+            assertSame(placed, resolver.find("orders", "customers", "placed").get());
+            // aligned only
+            assertFalse(resolver.find("customers", "orders", null).isPresent());
+        });
+        assertEquals(2, resolver.getSize());
+        assertEquals(2000, resolver.getHits() + resolver.getMisses());
+        assertTrue(resolver.getHits() > 0);
+
+        assertFalse(resolver.find("employees", "employees", null).isPresent());
+        assertTrue(resolver.getSize() <= 2);
+        // errors are thrown on every call
+        assertThrows(TranslationException.class, () -> resolver.find("orders", "customers", "placd"));
+        assertThrows(TranslationException.class, () -> resolver.find("orders", "customers", "placd"));
+    }
+
+    @Test
+    public void delta() {
+
+        Schema before = new Schema("s");
+        Relation placed = relation("orders_customers", "orders", "customers");
+        Relation sold = relation("orders_employees", "orders", "employees");
+        Relation supplies = relation("products_suppliers", "products", "suppliers");
+        before.addRelation(placed);
+        before.addRelation(sold);
+        before.addRelation(supplies);
+        Map<String, List<String>> links = new HashMap<>();
+        links.put("placed", Collections.singletonList("orders_customers"));
+        links.put("sold", Collections.singletonList("orders_employees"));
+
+        Schema after = new Schema("s");
+        Relation billed = relation("orders_customers_billing", "orders", "customers");
+        after.addRelation(placed);
+        after.addRelation(supplies);
+        after.addRelation(billed);
+        Map<String, List<String>> linksAfter = new HashMap<>();
+        linksAfter.put("placed", Arrays.asList("orders_customers", "orders_customers_billing"));
+        SchemaDiff diff = SchemaDiff.compute(before, links, after, linksAfter);
+
+        SharedRelationResolver shared = new SharedRelationResolver(before, links);
+        assertSame(placed, shared.find("orders", "customers", null).get());
+        assertSame(supplies, shared.find("products", "suppliers", null).get());
+        assertSame(sold, shared.find("orders", "employees", "sold").get());
+        assertThrows(UnsupportedOperationException.class, () -> shared.update(diff));
+
+        SharedRelationResolver derived = shared.derive(after, linksAfter, diff);
+        // only the unaffected result is kept
+        assertEquals(1, derived.getSize());
+        assertFalse(derived.find("orders", "customers", null).isPresent());
+        assertSame(billed, derived.find("orders", "customers", "orders_customers_billing").get());
+        assertFalse(derived.find("orders", "employees", null).isPresent());
+        assertSame(supplies, derived.find("products", "suppliers", null).get());
+        assertEquals(Arrays.asList("orders_customers", "orders_customers_billing"), derived.relationsBetween("orders", "customers"));
+        // the previous version is untouched
+        assertSame(placed, shared.find("orders", "customers", null).get());
+        assertSame(sold, shared.find("orders", "employees", null).get());
+
+        // a mutable resolver follows the change in place
+        RelationResolver resolver = new RelationResolver(before, links);
+        resolver.find("orders", "customers", null);
+        diff.apply(before);
+        diff.applyLinks(links);
+        resolver.update(diff);
+        resolver.setStrict(true);
+        assertFalse(resolver.find("orders", "employees", null).isPresent());
+        assertSame(placed, resolver.find("orders", "customers", "placed").get());
+        TranslationException ex = assertThrows(TranslationException.class, () -> resolver.find("orders", "employees", "sold"));
+        assertEquals(Diagnostic.Code.UNKNOWN_LINK, ex.getDiagnostic().getCode());
+    }
+
+    @Test
+    public void updateMatchesLinkedRelationsByName() {
+
+        Schema db = new Schema("s");
+        db.addRelation(relation("orders_customers", "orders", "customers"));
+        Map<String, List<String>> links = new HashMap<>();
+        links.put("placed", Collections.singletonList("ORDERS_CUSTOMERS"));
+        RelationResolver resolver = new RelationResolver(db, links);
+        resolver.setStrict(true);
+        assertEquals("orders_customers", resolver.find("orders", "customers", "placed").get().getName());
+
+        // the link names the changed relation in other case, it is recompiled
+        Schema moved = new Schema("s");
+        moved.addRelation(relation("orders_customers", "invoices", "customers"));
+        SchemaDiff diff = SchemaDiff.compute(db, moved);
+        diff.apply(db);
+        resolver.update(diff);
+        assertEquals("orders_customers", resolver.find("invoices", "customers", "placed").get().getName());
+        assertThrows(TranslationException.class, () -> resolver.find("orders", "customers", "placed"));
+
+        // a dangling link rejects the whole update
+        Map<String, List<String>> dangling = new HashMap<>(links);
+        dangling.put("sold", Collections.singletonList("orders_employees"));
+        Schema extended = new Schema("s");
+        extended.addRelation(relation("orders_customers", "invoices", "customers"));
+        extended.addRelation(relation("invoices_employees", "invoices", "employees"));
+        SchemaDiff bad = SchemaDiff.compute(db, links, extended, dangling);
+        bad.apply(db);
+        bad.applyLinks(links);
+        assertThrows(IllegalArgumentException.class, () -> resolver.update(bad));
+        assertEquals("orders_customers", resolver.find("invoices", "customers", "placed").get().getName());
+        TranslationException ex = assertThrows(TranslationException.class, () -> resolver.find("invoices", "employees", "sold"));
+        assertEquals(Diagnostic.Code.NO_RELATION, ex.getDiagnostic().getCode());
+    }
+
+    private static Relation relation(String name, String start, String end) {
+        Relation r = new Relation(name);
+        r.setStartTable(start);
+        r.setEndTable(end);
+        return r;
+    }
+}
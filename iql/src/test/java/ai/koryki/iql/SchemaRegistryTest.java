@@ -0,0 +1,119 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.iql;
+
+import ai.koryki.antlr.InMemoryMetrics;
+import ai.koryki.model.schema.Relation;
+import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.SchemaDiff;
+import ai.koryki.model.schema.Table;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaRegistryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void reload() throws Exception {
+
+        Path schemaFile = dir.resolve("schema.json");
+        Path linksFile = dir.resolve("links.json");
+        write(schemaFile, schema("customers", "orders"));
+        Files.write(linksFile, "{\"placed\":[\"orders_customers\"]}".getBytes(StandardCharsets.UTF_8));
+
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        try (SchemaRegistry registry = new SchemaRegistry(schemaFile, linksFile)) {
+            registry.setMetrics(metrics);
+
+            SchemaRegistry.Version first = registry.current();
+            assertEquals(1, first.getNumber());
+            assertTrue(first.getResolver().find("orders", "customers", "placed").isPresent());
+
+            List<SchemaDiff> diffs = new CopyOnWriteArrayList<>();
+            registry.addListener((v, d) -> diffs.add(d));
+            // same content, no new version
+            write(schemaFile, schema("customers", "orders"));
+            assertTrue(registry.reload());
+            assertSame(first, registry.current());
+
+            registry.start(50);
+            write(schemaFile, schema("customers", "orders", "employees"));
+            awaitVersion(registry, 2);
+
+            SchemaRegistry.Version second = registry.current();
+            assertEquals(2, second.getNumber());
+            assertEquals(1, diffs.size());
+            assertEquals(Collections.singleton("employees"), diffs.get(0).getAffectedTables());
+            assertSame(diffs.get(0), registry.getLastDiff());
+            assertTrue(second.getSchema().getTable("employees").isPresent());
+            // taken before the swap, unchanged
+            assertFalse(first.getSchema().getTable("employees").isPresent());
+            assertEquals(registry.getReloads() - 1, metrics.getHistogram(SchemaRegistry.RELOAD).getCount());
+            assertTrue(registry.getLastReloadNanos() > 0);
+
+            // a dangling link keeps the current version
+            Files.write(linksFile, "{\"placed\":[\"orders_customers\"],\"sold\":[\"orders_employees\"]}".getBytes(StandardCharsets.UTF_8));
+            assertFalse(registry.reload());
+            assertSame(second, registry.current());
+            assertInstanceOf(IllegalArgumentException.class, registry.getLastError());
+            assertTrue(registry.getFailedReloads() >= 1);
+        }
+    }
+
+    private static void awaitVersion(SchemaRegistry registry, long version) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (registry.getVersion() < version && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(version, registry.getVersion());
+    }
+
+    /**
+     * Replace the file at once, as a deployment would.
+     */
+    private static void write(Path file, Schema schema) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, new ObjectMapper().writeValueAsBytes(schema));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Schema schema(String... tables) {
+        Schema schema = new Schema("test");
+        for (String t : tables) {
+            schema.addTable(new Table(t));
+        }
+        Relation r = new Relation("orders_customers");
+        r.setStartTable("orders");
+        r.setEndTable("customers");
+        schema.addRelation(r);
+        return schema;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.iql;
+
+import ai.koryki.model.model.Entity;
+import ai.koryki.model.model.Model;
+import ai.koryki.model.schema.Relation;
+import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.Table;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TenantRegistryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void singleLoad() throws Exception {
+
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        TenantRegistry registry = new TenantRegistry(id -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return tenant(id);
+        }, Long.MAX_VALUE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<TenantRegistry.Tenant>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> registry.get("northwind")));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            TenantRegistry.Tenant first = futures.get(0).get();
+            for (Future<TenantRegistry.Tenant> f : futures) {
+                assertSame(first, f.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, registry.getMisses());
+        assertTrue(registry.get("northwind").getResolver().find("orders", "customers", null).isPresent());
+    }
+
+    @Test
+    public void evict() throws IOException {
+
+        long size = tenant("a").getBytes();
+        TenantRegistry lru = new TenantRegistry(TenantRegistryTest::tenant, size * 2);
+        lru.get("a");
+        lru.get("b");
+        lru.get("a");
+        lru.get("c");
+        assertTrue(lru.isLoaded("a"));
+        assertFalse(lru.isLoaded("b"));
+        assertTrue(lru.isLoaded("c"));
+        assertEquals(1, lru.getEvictions());
+        assertEquals(size * 2, lru.getBytes());
+
+        TenantRegistry lfu = new TenantRegistry(TenantRegistryTest::tenant, size * 2, TenantRegistry.Policy.LFU);
+        lfu.get("a");
+        lfu.get("a");
+        lfu.get("b");
+        lfu.get("c");
+        assertTrue(lfu.isLoaded("a"));
+        assertFalse(lfu.isLoaded("b"));
+
+        lfu.invalidate("a");
+        assertFalse(lfu.isLoaded("a"));
+        assertEquals(size, lfu.getBytes());
+    }
+
+    @Test
+    public void budget() {
+
+        TenantRegistry.Tenant small = tenant("a", 10, null);
+        TenantRegistry.Tenant large = tenant("a", 1000, null);
+        // the memo bound is accounted for up front
+        assertEquals(990 * TenantRegistry.MEMO_ENTRY_BYTES, large.getBytes() - small.getBytes());
+
+        Model model = new Model();
+        model.setName("northwind");
+        model.setEntities(Collections.singletonList(new Entity("customer")));
+        model.setLinks(Collections.emptyList());
+        assertTrue(tenant("a", 10, model).getBytes() > small.getBytes());
+
+        // the memo doesn't grow beyond its bound
+        TenantRegistry.Tenant t = tenant("a", 2, null);
+        for (int i = 0; i < 10; i++) {
+            t.getResolver().find("orders", "customers", "r" + i);
+        }
+        assertTrue(t.getResolver().getSize() <= 2);
+    }
+
+    @Test
+    public void directory() throws IOException {
+
+        Path tenant = Files.createDirectories(dir.resolve("northwind"));
+        Files.write(tenant.resolve("schema.json"), new ObjectMapper().writeValueAsBytes(tenant("northwind").getSchema()));
+        Files.write(tenant.resolve("links.json"), "{\"placed\":[\"orders_customers\"]}".getBytes(StandardCharsets.UTF_8));
+
+        TenantRegistry registry = new TenantRegistry(TenantRegistry.directory(dir), 1 << 20);
+        TenantRegistry.Tenant t = registry.get("northwind");
+        assertTrue(t.getResolver().find("orders", "customers", "placed").isPresent());
+        assertNull(t.getModel());
+
+        assertThrows(IllegalArgumentException.class, () -> registry.get("../northwind"));
+        assertThrows(IOException.class, () -> registry.get("unknown"));
+        assertEquals(2, registry.getFailures());
+        assertFalse(registry.isLoaded("unknown"));
+    }
+
+    private static TenantRegistry.Tenant tenant(String id) {
+        return tenant(id, TenantRegistry.Tenant.DEFAULT_MEMO_ENTRIES, null);
+    }
+
+    private static TenantRegistry.Tenant tenant(String id, int memoEntries, Model model) {
+        Schema schema = new Schema(id);
+        schema.addTable(new Table("orders"));
+        schema.addTable(new Table("customers"));
+        Relation r = new Relation("orders_customers");
+        r.setStartTable("orders");
+        r.setEndTable("customers");
+        schema.addRelation(r);
+        return new TenantRegistry.Tenant(id, schema, Collections.emptyMap(), model, memoEntries);
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.kql;
+
+import ai.koryki.antlr.Diagnostic;
+import ai.koryki.antlr.GrammarException;
+import ai.koryki.antlr.ParseBudget;
+import ai.koryki.antlr.PipelineMetrics;
+import ai.koryki.antlr.kql.KQLReader;
+import ai.koryki.iql.Bean2Sql;
+import ai.koryki.iql.RelationResolver;
+import ai.koryki.iql.SchemaValidator;
+import ai.koryki.iql.TranslationException;
+import ai.koryki.iql.query.Query;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Validate candidate KQL queries in parallel: parse, build the bean, resolve against the schema and
+ * translate to SQL. The resolver is only read and shared by all tasks.
+ * <p>
+ * Any {@link ExecutorService} can be used, e.g. a virtual thread executor on Java 21.
+ */
+public class CandidateValidator {
+
+    public enum Stage {
+        PARSE, BEAN, SQL
+    }
+
+    private final RelationResolver resolver;
+    private final ExecutorService executor;
+    private ParseBudget budget = ParseBudget.UNLIMITED;
+
+    public CandidateValidator(RelationResolver resolver) {
+        this(resolver, ForkJoinPool.commonPool());
+    }
+
+    public CandidateValidator(RelationResolver resolver, ExecutorService executor) {
+        this.resolver = resolver;
+        this.executor = executor;
+    }
+
+    public ParseBudget getBudget() {
+        return budget;
+    }
+
+    public void setBudget(ParseBudget budget) {
+        this.budget = budget != null ? budget : ParseBudget.UNLIMITED;
+    }
+
+    /**
+     * @return one result per candidate, in the order of the candidates
+     */
+    public List<Result> validate(List<String> candidates) {
+
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            int index = i;
+            futures.add(executor.submit(() -> validate(index, candidates.get(index))));
+        }
+        List<Result> results = new ArrayList<>();
+        try {
+            for (Future<Result> f : futures) {
+                results.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Return the first valid candidate to finish, the remaining candidates are cancelled.
+     */
+    public Optional<Result> validateFirst(List<String> candidates) {
+
+        CompletionService<Result> service = new ExecutorCompletionService<>(executor);
+        List<Future<Result>> futures = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            int index = i;
+            futures.add(service.submit(() -> validate(index, candidates.get(index))));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Result r = service.take().get();
+                if (r.isValid()) {
+                    return Optional.of(r);
+                }
+            }
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    public Result validate(int index, String candidate) {
+
+        Result result = new Result(index, candidate);
+        Stage stage = Stage.PARSE;
+        try {
+            KQLReader reader = new KQLReader(CharStreams.fromString(candidate), false);
+            reader.setBudget(budget);
+            reader.getQuery();
+            result.timings.put(PipelineMetrics.LEX, reader.getLexnanos());
+            result.timings.put(PipelineMetrics.PARSE, reader.getParsenanos());
+            if (!reader.getDiagnostics().isEmpty()) {
+                result.stage = stage;
+                result.diagnostics.addAll(reader.getDiagnostics());
+                return result;
+            }
+            if (Thread.interrupted()) {
+                return cancelled(result, stage);
+            }
+
+            stage = Stage.BEAN;
+            long start = System.nanoTime();
+            Query query = new KQL2Bean(reader.getQuery(), reader.getDescription()).toBean();
+            result.timings.put(PipelineMetrics.BEAN, System.nanoTime() - start);
+            if (Thread.interrupted()) {
+                return cancelled(result, stage);
+            }
+
+            stage = Stage.SQL;
+            start = System.nanoTime();
+            // report all schema problems at once, Bean2Sql stops at the first
+            List<Diagnostic> schema = new SchemaValidator(resolver).validate(query);
+            if (!schema.isEmpty()) {
+                result.stage = stage;
+                result.diagnostics.addAll(schema);
+                return result;
+            }
+            result.sql = new Bean2Sql(resolver, query).toEnhancedSql();
+            result.timings.put(PipelineMetrics.SQL, System.nanoTime() - start);
+        } catch (GrammarException e) {
+            result.stage = stage;
+            result.line = e.getLine();
+            result.pos = e.getPos();
+            if (e.getDiagnostics().isEmpty()) {
+                result.diagnostics.add(new Diagnostic(Diagnostic.Code.SYNTAX, e.getMessage()));
+            } else {
+                result.diagnostics.addAll(e.getDiagnostics());
+            }
+        } catch (TranslationException e) {
+            result.stage = stage;
+            result.diagnostics.add(e.getDiagnostic());
+        } catch (RuntimeException e) {
+            result.stage = stage;
+            result.diagnostics.add(new Diagnostic(Diagnostic.Code.INTERNAL,
+                    e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+        }
+        return result;
+    }
+
+    private static Result cancelled(Result result, Stage stage) {
+        result.stage = stage;
+        result.diagnostics.add(new Diagnostic(Diagnostic.Code.INTERNAL, "cancelled"));
+        return result;
+    }
+
+    public static class Result {
+
+        private final int index;
+        private final String query;
+        private final List<Diagnostic> diagnostics = new ArrayList<>();
+        private final Map<String, Long> timings = new LinkedHashMap<>();
+        private Stage stage;
+        private int line;
+        private int pos;
+        private String sql;
+
+        private Result(int index, String query) {
+            this.index = index;
+            this.query = query;
+        }
+
+        public boolean isValid() {
+            return stage == null;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        /**
+         * @return the stage that failed, null if the candidate is valid
+         */
+        public Stage getStage() {
+            return stage;
+        }
+
+        public List<Diagnostic> getDiagnostics() {
+            return diagnostics;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public int getPos() {
+            return pos;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return nanoseconds per finished stage, keyed by {@link PipelineMetrics} stage names
+         */
+        public Map<String, Long> getTimings() {
+            return timings;
+        }
+    }
+}
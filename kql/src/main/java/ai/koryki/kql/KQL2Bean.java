@@ -17,6 +17,7 @@
 package ai.koryki.kql;
 
 import ai.koryki.antlr.KQLParser;
+import ai.koryki.antlr.PipelineMetrics;
 import ai.koryki.iql.Identifier;
 import ai.koryki.iql.query.*;
 import ai.koryki.iql.query.Set;
@@ -33,6 +34,7 @@ public class KQL2Bean {
 
     private KQLParser.QueryContext script;
     private String description;
+    private PipelineMetrics metrics = PipelineMetrics.NOOP;
 
     public KQL2Bean(KQLParser.QueryContext script, String description) {
         this.script = script;
@@ -41,15 +43,27 @@ public class KQL2Bean {
 
     public Query toBean() {
 
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
         Query bean = new Query();
         bean.setDescription(description);
         if (script.block() != null) {
             bean.setBlock(toMap(script.block()));
         }
         bean.setSet(toSet(script.set()));
+        if (metrics.isEnabled()) {
+            metrics.record(PipelineMetrics.BEAN, System.nanoTime() - start);
+        }
         return bean;
     }
 
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics != null ? metrics : PipelineMetrics.NOOP;
+    }
+
     private List<Block> toMap(List<KQLParser.BlockContext> cte) {
 
         List<Block> map = new ArrayList<>();
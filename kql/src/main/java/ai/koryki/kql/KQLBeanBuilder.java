@@ -0,0 +1,424 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.kql;
+
+import ai.koryki.antlr.KQLBaseListener;
+import ai.koryki.antlr.KQLParser;
+import ai.koryki.antlr.kql.KQLReader;
+import ai.koryki.iql.Identifier;
+import ai.koryki.iql.logic.Normalizer;
+import ai.koryki.iql.query.*;
+import ai.koryki.iql.query.Set;
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Builds the same {@link Query} as {@link KQL2Bean}, but from parse listener events, so no parse tree
+ * has to be kept. Values of finished rules are kept on a stack until the enclosing rule exits.
+ */
+public class KQLBeanBuilder extends KQLBaseListener {
+
+    private final List<Object> values = new ArrayList<>();
+    private final Deque<Integer> marks = new ArrayDeque<>();
+    private Query query;
+    private boolean broken;
+
+    /**
+     * Parse the reader without a parse tree, the reader must not have been parsed before.
+     *
+     * @return the query or null on syntax errors, recovered ones included
+     */
+    public static Query toBean(KQLReader reader) {
+        KQLBeanBuilder builder = new KQLBeanBuilder();
+        reader.setBuildParseTree(false);
+        reader.addParseListener(builder);
+        reader.getQuery();
+        // inline recovery by token insertion or deletion leaves no exception in the contexts
+        if (reader.getParser().getNumberOfSyntaxErrors() > 0 || !isEmpty(reader.getPanic()) || !isEmpty(reader.getDiagnostics())) {
+            return null;
+        }
+        Query query = builder.getQuery();
+        if (query != null) {
+            query.setDescription(reader.getDescription());
+        }
+        return query;
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    public Query getQuery() {
+        return broken ? null : query;
+    }
+
+    @Override
+    public void enterQuery(KQLParser.QueryContext ctx) {
+        // the parser may start over after a failed SLL attempt
+        values.clear();
+        marks.clear();
+        marks.push(0);
+        query = null;
+        broken = false;
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+        if (ctx.getRuleIndex() != KQLParser.RULE_query) {
+            marks.push(values.size());
+        }
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        int mark = marks.pop();
+        if (ctx.exception != null) {
+            broken = true;
+        }
+        if (broken) {
+            return;
+        }
+        switch (ctx.getRuleIndex()) {
+            case KQLParser.RULE_query:
+                toQuery(mark);
+                break;
+            case KQLParser.RULE_block:
+                toBlock((KQLParser.BlockContext) ctx, mark);
+                break;
+            case KQLParser.RULE_set:
+                toSet((KQLParser.SetContext) ctx, mark);
+                break;
+            case KQLParser.RULE_select:
+                toSelect(mark);
+                break;
+            case KQLParser.RULE_link:
+                values.add(toLink((KQLParser.LinkContext) ctx));
+                break;
+            case KQLParser.RULE_table:
+                values.add(toTable((KQLParser.TableContext) ctx));
+                break;
+            case KQLParser.RULE_order:
+                toOrder((KQLParser.OrderContext) ctx, mark);
+                break;
+            case KQLParser.RULE_limitClause:
+                toLimit((KQLParser.LimitClauseContext) ctx);
+                break;
+            case KQLParser.RULE_logical_expression:
+                toLogicalNode((KQLParser.Logical_expressionContext) ctx, mark);
+                break;
+            case KQLParser.RULE_unary_logical_expression:
+                toUnaryLogicalExpression((KQLParser.Unary_logical_expressionContext) ctx, mark);
+                break;
+            case KQLParser.RULE_operator:
+            case KQLParser.RULE_header:
+                values.add(ctx.getText());
+                break;
+            case KQLParser.RULE_fetchItem:
+                toOut((KQLParser.FetchItemContext) ctx, mark);
+                break;
+            case KQLParser.RULE_expression:
+                toExpression((KQLParser.ExpressionContext) ctx, mark);
+                break;
+            case KQLParser.RULE_date_literal:
+                values.add(toExpression((KQLParser.Date_literalContext) ctx));
+                break;
+            case KQLParser.RULE_function:
+                toFunction((KQLParser.FunctionContext) ctx, mark);
+                break;
+            case KQLParser.RULE_argument:
+                toArgument((KQLParser.ArgumentContext) ctx);
+                break;
+            case KQLParser.RULE_column:
+                values.add(toColumn((KQLParser.ColumnContext) ctx));
+                break;
+            default:
+                // filterClause and fetchClause hand their values to select
+                break;
+        }
+    }
+
+    private List<Object> pop(int mark) {
+        List<Object> top = values.subList(mark, values.size());
+        List<Object> result = new ArrayList<>(top);
+        top.clear();
+        return result;
+    }
+
+    private void toQuery(int mark) {
+        Query bean = new Query();
+        List<Block> blocks = new ArrayList<>();
+        for (Object v : pop(mark)) {
+            if (v instanceof Block) {
+                blocks.add((Block) v);
+            } else {
+                bean.setSet((Set) v);
+            }
+        }
+        bean.setBlock(blocks);
+        query = bean;
+    }
+
+    private void toBlock(KQLParser.BlockContext ctx, int mark) {
+        Block block = new Block();
+        block.setId(ctx.ID().getText());
+        block.setSet((Set) pop(mark).get(0));
+        values.add(block);
+    }
+
+    private void toSet(KQLParser.SetContext set, int mark) {
+
+        String op = set.SET_INTERSECT() != null ? set.SET_INTERSECT().getText() :
+                set.SET_MINUS() != null ? set.SET_MINUS().getText() :
+                set.SET_UNION() != null ? set.SET_UNION().getText() :
+                set.SET_UNIONALL() != null ? set.SET_UNIONALL().getText() : null;
+
+        if (set.LEFT_PAREN() != null) {
+            // inner set is already on top
+            return;
+        }
+        Set bean = new Set();
+        if (op != null) {
+            // the left operand was finished before this context was entered
+            Set right = (Set) pop(mark).get(0);
+            Set left = (Set) values.remove(mark - 1);
+            bean.setOperator(op);
+            bean.setLeft(left);
+            bean.setRight(right);
+        } else {
+            bean.setSelect((Select) pop(mark).get(0));
+        }
+        values.add(bean);
+    }
+
+    private void toSelect(int mark) {
+
+        Select bean = new Select();
+        HashMap<String, List<Join>> joins = new HashMap<>();
+        int idx = 1;
+        for (Object v : pop(mark)) {
+            if (v instanceof Table) {
+                Table start = (Table) v;
+                bean.setStart(start);
+                // store first link
+                joins.put(start.getAlias(), bean.getJoin());
+            } else if (v instanceof Link) {
+                Link link = (Link) v;
+                joins.get(link.from).add(link.join);
+                joins.put(link.join.getTable().getAlias(), link.join.getJoin());
+            } else if (v instanceof LogicalExpression) {
+                bean.setFilter(Normalizer.normalize((LogicalExpression) v));
+            } else if (v instanceof Out) {
+                Out o = (Out) v;
+                o.setIdx(idx++);
+                bean.getStart().getOut().add(o);
+            } else if (v instanceof Order) {
+                bean.getStart().getOrder().add((Order) v);
+            } else if (v instanceof Integer) {
+                bean.setLimit((Integer) v);
+            }
+        }
+        values.add(bean);
+    }
+
+    private void toOrder(KQLParser.OrderContext order, int mark) {
+        Order o = new Order();
+        Object v = pop(mark).get(0);
+        if (v instanceof Expression) {
+            o.setExpression((Expression) v);
+        } else {
+            o.setHeader((String) v);
+        }
+        if (order.ASC() != null) {
+            o.setAsc(true);
+        }
+        values.add(o);
+    }
+
+    private void toLimit(KQLParser.LimitClauseContext ctx) {
+        if (ctx.NUMBER() != null) {
+            int limit = Integer.parseInt(ctx.NUMBER().getText());
+            if (limit > 0) {
+                values.add(limit);
+            }
+        }
+    }
+
+    private void toLogicalNode(KQLParser.Logical_expressionContext ctx, int mark) {
+
+        LogicalExpression node;
+        if (ctx.NOT() != null) {
+            node = LogicalExpression.not((LogicalExpression) pop(mark).get(0));
+        } else if (ctx.AND() != null || ctx.OR() != null) {
+            LogicalExpression right = (LogicalExpression) pop(mark).get(0);
+            LogicalExpression left = (LogicalExpression) values.remove(mark - 1);
+            node = ctx.AND() != null ? LogicalExpression.and(left, right) : LogicalExpression.or(left, right);
+        } else {
+            node = LogicalExpression.value((UnaryLogicalExpression) pop(mark).get(0));
+        }
+        values.add(node);
+    }
+
+    private void toUnaryLogicalExpression(KQLParser.Unary_logical_expressionContext ctx, int mark) {
+
+        List<Object> v = pop(mark);
+        UnaryLogicalExpression bean = new UnaryLogicalExpression();
+        if (v.get(0) instanceof LogicalExpression) {
+            bean.setNode((LogicalExpression) v.get(0));
+        } else {
+            bean.setLeft((Expression) v.get(0));
+            bean.setOp((String) v.get(1));
+            for (int i = 2; i < v.size(); i++) {
+                bean.getRight().add((Expression) v.get(i));
+            }
+        }
+        values.add(bean);
+    }
+
+    private void toOut(KQLParser.FetchItemContext ret, int mark) {
+
+        Out o = new Out();
+        o.setExpression((Expression) pop(mark).get(0));
+        if (ret.h != null) {
+            o.setHeader(ret.h.getText());
+        }
+        values.add(o);
+    }
+
+    private void toExpression(KQLParser.ExpressionContext expression, int mark) {
+
+        String name = expression.MULT() != null ? ai.koryki.iql.rules.Function.multiply.name() :
+                expression.DIV() != null ? ai.koryki.iql.rules.Function.divide.name() :
+                expression.PLUS() != null ? ai.koryki.iql.rules.Function.add.name() :
+                expression.MINUS() != null ? ai.koryki.iql.rules.Function.minus.name() : null;
+
+        if (name != null && expression.LEFT_PAREN() == null) {
+            Expression right = (Expression) pop(mark).get(0);
+            Expression left = (Expression) values.remove(mark - 1);
+            Expression bean = new Expression();
+            Function f = new Function();
+            f.setFunc(name);
+            f.setArguments(Arrays.asList(left, right));
+            bean.setFunction(f);
+            values.add(bean);
+            return;
+        }
+
+        Expression bean = new Expression();
+        if (expression.NUMBER() != null) {
+            bean.setNumber(Double.valueOf(expression.NUMBER().getText()));
+        } else if (expression.SQ_STRING() != null) {
+            bean.setText(expression.SQ_STRING().getText());
+        } else {
+            Object v = pop(mark).get(0);
+            if (v instanceof Set) {
+                bean.setSet((Set) v);
+            } else if (expression.LEFT_PAREN() != null) {
+                bean.setLeft((Expression) v);
+            } else if (v instanceof Column) {
+                bean.setColumn((Column) v);
+            } else if (v instanceof Function) {
+                bean.setFunction((Function) v);
+            } else {
+                // date literal
+                bean = (Expression) v;
+            }
+        }
+        values.add(bean);
+    }
+
+    private Expression toExpression(KQLParser.Date_literalContext date) {
+        Expression bean = new Expression();
+
+        if (date.TIME_FORMAT() != null) {
+            bean.setLocalTime(LocalTime.parse(Identifier.unquote(date.TIME_FORMAT().getText())));
+        } else if (date.TIMESTAMP_FORMAT() != null) {
+            bean.setLocalDateTime(LocalDateTime.parse(Identifier.unquote(date.TIMESTAMP_FORMAT().getText())));
+        } else if (date.DATE_FORMAT() != null) {
+            bean.setLocalDate(LocalDate.parse(Identifier.unquote(date.DATE_FORMAT().getText())));
+        }
+        return bean;
+    }
+
+    private void toFunction(KQLParser.FunctionContext function, int mark) {
+
+        Function f = new Function();
+        f.setFunc(function.func.getText());
+        for (Object a : pop(mark)) {
+            f.getArguments().add((Expression) a);
+        }
+        values.add(f);
+    }
+
+    private void toArgument(KQLParser.ArgumentContext a) {
+        if (a.identity != null) {
+            Expression e = new Expression();
+            e.setIdentity(a.identity.getText());
+            values.add(e);
+        }
+    }
+
+    private Column toColumn(KQLParser.ColumnContext column) {
+
+        Column c = new Column();
+        if (column.alias != null) {
+            c.setAlias(column.alias.getText());
+        }
+        c.setCol(column.col.getText());
+        return c;
+    }
+
+    private Link toLink(KQLParser.LinkContext link) {
+
+        Join bean = new Join();
+        bean.setCrit(link.crit != null ? link.crit.getText() : null);
+        if (link.PLUS() != null) {
+            bean.setOptional(true);
+        }
+        if (link.LESS() != null) {
+            bean.setInvers(true);
+        }
+
+        Table t = new Table();
+        t.setName(link.to.getText());
+        t.setAlias(link.alias.getText());
+
+        bean.setTable(t);
+        return new Link(link.from.getText(), bean);
+    }
+
+    private Table toTable(KQLParser.TableContext table) {
+        Table bean = new Table();
+
+        bean.setAlias(table.alias.getText());
+        bean.setName(table.name.getText());
+        return bean;
+    }
+
+    private static class Link {
+        private final String from;
+        private final Join join;
+
+        private Link(String from, Join join) {
+            this.from = from;
+            this.join = join;
+        }
+    }
+}
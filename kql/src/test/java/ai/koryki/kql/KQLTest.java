@@ -16,22 +16,50 @@
  */
 package ai.koryki.kql;
 
+import ai.koryki.antlr.Diagnostic;
+import ai.koryki.antlr.InMemoryMetrics;
 import ai.koryki.antlr.KQLParser;
+import ai.koryki.antlr.PipelineMetrics;
+import ai.koryki.antlr.PredictionStrategy;
 import ai.koryki.antlr.kql.KQLReader;
 import ai.koryki.iql.Bean2Sql;
 import ai.koryki.iql.RelationResolver;
+import ai.koryki.iql.TranslationCache;
 import ai.koryki.iql.query.Query;
 import ai.koryki.model.JsonUtil;
 import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.SchemaDiff;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class KQLTest {
 
@@ -111,6 +139,197 @@ public class KQLTest {
         resolver.setStrict(false);
     }
 
+    @Test
+    public void metrics() throws IOException {
+
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        for (int i = 0; i < 3; i++) {
+            InputStream q = KQLTest.class.getResourceAsStream("/ai/koryki/databases/northwind/demo/customersmorethan10ordersin2023.kql");
+            KQLReader r = new KQLReader(q);
+            r.setMetrics(metrics);
+            KQL2Bean l = new KQL2Bean(r.getQuery(), r.getDescription());
+            l.setMetrics(metrics);
+            Bean2Sql k = new Bean2Sql(resolver, l.toBean());
+            k.setMetrics(metrics);
+            assertNotNull(k.toEnhancedSql());
+            assertTrue(r.getLexnanos() > 0);
+            assertTrue(r.getParsenanos() > 0);
+        }
+
+        for (String stage : new String[] {PipelineMetrics.LEX, PipelineMetrics.PARSE, PipelineMetrics.BEAN,
+                PipelineMetrics.RULE + "BlockRelationRule", PipelineMetrics.RULE + "CheckOuterJoinFilterRule", PipelineMetrics.SQL}) {
+            InMemoryMetrics.Histogram h = metrics.getHistogram(stage);
+            assertNotNull(h, stage);
+            assertEquals(3, h.getCount(), stage);
+            assertTrue(h.getMin() <= h.getPercentile(0.5) && h.getPercentile(0.5) <= h.getMax(), stage);
+        }
+        System.out.println(metrics);
+    }
+
+    @Test
+    public void beanBuilder() throws IOException, URISyntaxException {
+
+        // date literals are compared by their fields
+        ObjectMapper mapper = JsonMapper.builder().disable(MapperFeature.REQUIRE_HANDLERS_FOR_JAVA8_TIMES).build();
+        List<String> corpus = kqlResources();
+        assertTrue(corpus.size() >= 9, corpus.toString());
+        for (String resource : corpus) {
+            String kql = KQLReader.read(resource);
+
+            KQLReader r = new KQLReader(kql);
+            Query expected = new KQL2Bean(r.getQuery(), r.getDescription()).toBean();
+            Query actual = KQLBeanBuilder.toBean(new KQLReader(kql));
+            if (!r.getPanic().isEmpty() || !r.getDiagnostics().isEmpty()) {
+                // no bean from a recovered parse
+                assertNull(actual, resource);
+                continue;
+            }
+            assertNotNull(actual, resource);
+            assertEquals(mapper.writeValueAsString(expected), mapper.writeValueAsString(actual), resource);
+
+            KQLReader twoStage = new KQLReader(kql);
+            twoStage.setStrategy(PredictionStrategy.TWO_STAGE);
+            assertEquals(mapper.writeValueAsString(expected), mapper.writeValueAsString(KQLBeanBuilder.toBean(twoStage)), resource);
+        }
+
+        // inline recovery by token insertion or deletion
+        String[] recovered = {
+                "FIND customers c FETCH c.company_name LIMIT 5 5",
+                "FIND customers c FILTER (c.city = 'x' FETCH c.city",
+                "FIND customers c FETCH c..city",
+                "FIND customers c FETCH c.company_name,, c.city"};
+        for (String kql : recovered) {
+            KQLReader r = new KQLReader(kql);
+            r.getQuery();
+            assertTrue(r.getParser().getNumberOfSyntaxErrors() > 0, kql);
+            assertNull(KQLBeanBuilder.toBean(new KQLReader(kql)), kql);
+        }
+    }
+
+    /**
+     * @return all KQL resources of the northwind database, from a directory or a jar
+     */
+    private static List<String> kqlResources() throws IOException, URISyntaxException {
+
+        String root = "/ai/koryki/databases/northwind/";
+        URI uri = KQLTest.class.getResource(root + "schema.json").toURI();
+        List<String> resources = new ArrayList<>();
+        if (uri.getScheme().equals("jar")) {
+            try (FileSystem fs = FileSystems.newFileSystem(uri, Collections.emptyMap())) {
+                collect(fs.getPath(root), root, resources);
+            }
+        } else {
+            collect(Paths.get(uri).getParent(), root, resources);
+        }
+        Collections.sort(resources);
+        return resources;
+    }
+
+    private static void collect(Path dir, String root, List<String> resources) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.filter(f -> f.toString().endsWith(".kql"))
+                    .forEach(f -> resources.add(root + dir.relativize(f).toString().replace('\\', '/')));
+        }
+    }
+
+    @Test
+    public void candidates() throws IOException {
+
+        String valid = KQLReader.read("/ai/koryki/databases/northwind/demo/customersingermany.kql");
+        List<String> candidates = Arrays.asList(
+                "FIND customers c FILTER",
+                "FIND customers c, c-unknown u",
+                valid);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CandidateValidator validator = new CandidateValidator(resolver, executor);
+            List<CandidateValidator.Result> results = validator.validate(candidates);
+            assertEquals(3, results.size());
+
+            assertEquals(CandidateValidator.Stage.PARSE, results.get(0).getStage());
+            assertFalse(results.get(0).getDiagnostics().isEmpty());
+            assertEquals(CandidateValidator.Stage.SQL, results.get(1).getStage());
+            assertEquals(Diagnostic.Code.UNKNOWN_TABLE, results.get(1).getDiagnostics().get(0).getCode());
+
+            CandidateValidator.Result ok = results.get(2);
+            assertTrue(ok.isValid());
+            assertEquals(toSql(new ByteArrayInputStream(valid.getBytes(StandardCharsets.UTF_8))), ok.getSql());
+            assertTrue(ok.getTimings().containsKey(PipelineMetrics.SQL));
+
+            CandidateValidator.Result first = validator.validateFirst(candidates).get();
+            assertEquals(2, first.getIndex());
+            assertFalse(validator.validateFirst(candidates.subList(0, 2)).isPresent());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void diagnostics() {
+
+        CandidateValidator validator = new CandidateValidator(resolver);
+        CandidateValidator.Result r = validator.validate(0, "FIND customer c, c-orders o FETCH c.compny_name, x.city, o.ordr_date");
+        assertEquals(CandidateValidator.Stage.SQL, r.getStage());
+
+        // all problems in one pass
+        List<Diagnostic> d = r.getDiagnostics();
+        assertEquals(3, d.size(), d.toString());
+        assertEquals(Diagnostic.Code.UNKNOWN_TABLE, d.get(0).getCode());
+        assertEquals("customer", d.get(0).getOffending());
+        assertEquals("customers", d.get(0).getFixes().get(0));
+        assertEquals(Diagnostic.Code.UNKNOWN_ALIAS, d.get(1).getCode());
+        assertEquals(Diagnostic.Code.UNKNOWN_COLUMN, d.get(2).getCode());
+        assertEquals("order_date", d.get(2).getFixes().get(0));
+
+        r = validator.validate(0, "FIND customers c FETCH c.compny_name");
+        d = r.getDiagnostics();
+        assertEquals(1, d.size(), d.toString());
+        assertEquals(Diagnostic.Code.UNKNOWN_COLUMN, d.get(0).getCode());
+        assertEquals("company_name", d.get(0).getFixes().get(0));
+
+        r = validator.validate(0, "FIND customers c, c-products p");
+        d = r.getDiagnostics();
+        assertEquals(Diagnostic.Code.NO_RELATION, d.get(0).getCode(), d.toString());
+
+        r = validator.validate(0, "FIND customers c FILTER");
+        assertEquals(CandidateValidator.Stage.PARSE, r.getStage());
+        assertEquals(Diagnostic.Code.SYNTAX, r.getDiagnostics().get(0).getCode());
+        assertEquals("<EOF>", r.getDiagnostics().get(0).getOffending());
+        assertFalse(r.getDiagnostics().get(0).getExpected().isEmpty());
+    }
+
+    @Test
+    public void translationCache() throws IOException {
+
+        String orders = "FIND customers c, c-orders o FETCH c.company_name, o.order_date";
+        String suppliers = "FIND suppliers s FETCH s.company_name";
+        Query ordersBean = new KQL2Bean(new KQLReader(orders).getCtx(), null).toBean();
+        Query suppliersBean = new KQL2Bean(new KQLReader(suppliers).getCtx(), null).toBean();
+        assertEquals(new HashSet<>(Arrays.asList("customers", "orders")), TranslationCache.tables(ordersBean));
+
+        TranslationCache<String> cache = new TranslationCache<>(10);
+        String ordersSql = new Bean2Sql(resolver, ordersBean).toEnhancedSql();
+        assertTrue(cache.put(orders, 1, ordersBean, ordersSql));
+        assertTrue(cache.put(suppliers, 1, suppliersBean, new Bean2Sql(resolver, suppliersBean).toEnhancedSql()));
+
+        Schema changed = northwind.clone();
+        changed.getTable("orders").get().getColumns().remove(0);
+        SchemaDiff diff = SchemaDiff.compute(northwind, changed);
+        assertEquals(Collections.singleton("orders"), diff.getAffectedTables());
+
+        assertEquals(1, cache.invalidate(diff, 2));
+        assertNull(cache.get(orders));
+        assertNotNull(cache.get(suppliers));
+
+        // a translation against the old version, finished after the invalidation, isn't kept
+        assertFalse(cache.put(orders, 1, ordersBean, ordersSql));
+        assertNull(cache.get(orders));
+        assertTrue(cache.put(orders, 2, ordersBean, ordersSql));
+        assertFalse(cache.put(suppliers, 1, suppliersBean, "stale"));
+        assertNotEquals("stale", cache.get(suppliers));
+    }
+
     private String toSql(InputStream lql) throws IOException {
 
         KQLReader r = new KQLReader(lql);
@@ -1,19 +1,32 @@
 package ai.koryki.model;
 
+import ai.koryki.model.model.Model;
+import ai.koryki.model.schema.Column;
+import ai.koryki.model.schema.Relation;
 import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.Table;
+import ai.koryki.model.schema.Type;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 
 public class JsonUtil {
 
+    // ObjectReaders are immutable and thread-safe, they share the mapper's deserializer cache
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader SCHEMA_READER = MAPPER.readerFor(Schema.class);
+    private static final ObjectReader TYPE_READER = MAPPER.readerFor(Type.class);
+    private static final ObjectReader MODEL_READER = MAPPER.readerFor(Model.class);
+    private static final ObjectReader LINKS_READER = MAPPER.readerFor(new TypeReference<HashMap<String, List<String>>>() {});
+
     public static Schema readSchemaFromResource(String ressource) throws IOException {
 
         InputStream i = JsonUtil.class.getResourceAsStream(ressource);
@@ -22,33 +35,217 @@ public class JsonUtil {
 
     public static Schema readDatabaseJson(InputStream in) throws IOException {
 
-        ObjectMapper mapper = new ObjectMapper();
-        try (Reader r = new InputStreamReader(in, StandardCharsets.UTF_8)) {
-            return mapper.readValue(r, Schema.class);
+        try (InputStream i = in) {
+            return SCHEMA_READER.readValue(i);
         }
     }
 
-    public static <K, V> HashMap<K, V> readHashSetFromJson(InputStream in, TypeReference<HashMap<K, V>> ref) throws IOException {
+    public static Model readModelJson(InputStream in) throws IOException {
 
-        ObjectMapper mapper = new ObjectMapper();
-        try (Reader r = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+        try (InputStream i = in) {
+            return MODEL_READER.readValue(i);
+        }
+    }
 
-            return  mapper.readValue(r, ref);
+    public static <K, V> HashMap<K, V> readHashSetFromJson(InputStream in, TypeReference<HashMap<K, V>> ref) throws IOException {
+
+        try (InputStream i = in) {
+            return MAPPER.readerFor(ref).readValue(i);
         }
     }
 
     public static HashMap<String, List<String>> readHashSetFromResource(String resource) throws IOException {
-        return readHashSetFromJson(
-                JsonUtil.class.getResourceAsStream(resource),
-                new TypeReference<HashMap<String, List<String>>>() { });
+        return readHashSetFromJson(JsonUtil.class.getResourceAsStream(resource));
     }
 
     public static HashMap<String, List<String>> readHashSetFromJson(InputStream in) throws IOException {
 
-        ObjectMapper mapper = new ObjectMapper();
-        try (Reader r = new InputStreamReader(in, StandardCharsets.UTF_8)) {
-            return  mapper.readValue(r, new TypeReference<HashMap<String, List<String>>>() {});
+        try (InputStream i = in) {
+            return LINKS_READER.readValue(i);
         }
     }
 
+    /**
+     * Read a schema token by token, adding tables and relations as they are parsed.
+     *
+     * @param withText false to skip comment and description values instead of keeping them
+     */
+    public static Schema streamDatabaseJson(InputStream in, boolean withText) throws IOException {
+
+        try (JsonParser p = MAPPER.getFactory().createParser(in)) {
+            expect(p, p.nextToken(), JsonToken.START_OBJECT);
+            Schema schema = new Schema();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken t = p.nextToken();
+                switch (field) {
+                    case "name":
+                        schema.setName(p.getValueAsString());
+                        break;
+                    case "comment":
+                        schema.setComment(text(p, withText));
+                        break;
+                    case "description":
+                        schema.setDescription(text(p, withText));
+                        break;
+                    case "tables":
+                        if (t != JsonToken.VALUE_NULL) {
+                            expect(p, t, JsonToken.START_ARRAY);
+                            while (p.nextToken() != JsonToken.END_ARRAY) {
+                                schema.addTable(table(p, withText));
+                            }
+                        }
+                        break;
+                    case "relations":
+                        if (t != JsonToken.VALUE_NULL) {
+                            expect(p, t, JsonToken.START_ARRAY);
+                            while (p.nextToken() != JsonToken.END_ARRAY) {
+                                schema.addRelation(relation(p, withText));
+                            }
+                        }
+                        break;
+                    default:
+                        throw unknown(p, field, Schema.class);
+                }
+            }
+            return schema;
+        }
+    }
+
+    private static Table table(JsonParser p, boolean withText) throws IOException {
+
+        expect(p, p.currentToken(), JsonToken.START_OBJECT);
+        Table table = new Table();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "name":
+                    table.setName(p.getValueAsString());
+                    break;
+                case "comment":
+                    table.setComment(text(p, withText));
+                    break;
+                case "description":
+                    table.setDescription(text(p, withText));
+                    break;
+                case "columns":
+                    if (t != JsonToken.VALUE_NULL) {
+                        expect(p, t, JsonToken.START_ARRAY);
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            table.addColumn(column(p, withText));
+                        }
+                    }
+                    break;
+                default:
+                    throw unknown(p, field, Table.class);
+            }
+        }
+        return table;
+    }
+
+    private static Column column(JsonParser p, boolean withText) throws IOException {
+
+        expect(p, p.currentToken(), JsonToken.START_OBJECT);
+        Column column = new Column();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "name":
+                    column.setName(p.getValueAsString());
+                    break;
+                case "comment":
+                    column.setComment(text(p, withText));
+                    break;
+                case "description":
+                    column.setDescription(text(p, withText));
+                    break;
+                case "type":
+                    Type type = t == JsonToken.VALUE_NULL ? null : TYPE_READER.readValue(p);
+                    if (type != null && !withText) {
+                        type.setComment(null);
+                        type.setDescription(null);
+                    }
+                    column.setType(type);
+                    break;
+                case "nullable":
+                    column.setNullable(t == JsonToken.VALUE_NULL ? null : p.getBooleanValue());
+                    break;
+                case "pkPos":
+                    column.setPkPos(p.getValueAsInt());
+                    break;
+                default:
+                    throw unknown(p, field, Column.class);
+            }
+        }
+        return column;
+    }
+
+    private static Relation relation(JsonParser p, boolean withText) throws IOException {
+
+        expect(p, p.currentToken(), JsonToken.START_OBJECT);
+        Relation relation = new Relation();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "name":
+                    relation.setName(p.getValueAsString());
+                    break;
+                case "comment":
+                    relation.setComment(text(p, withText));
+                    break;
+                case "description":
+                    relation.setDescription(text(p, withText));
+                    break;
+                case "startTable":
+                    relation.setStartTable(p.getValueAsString());
+                    break;
+                case "endTable":
+                    relation.setEndTable(p.getValueAsString());
+                    break;
+                case "symmetric":
+                    relation.setSymmetric(p.getValueAsBoolean());
+                    break;
+                case "startColumns":
+                    strings(p, t, relation.getStartColumns());
+                    break;
+                case "endColumns":
+                    strings(p, t, relation.getEndColumns());
+                    break;
+                default:
+                    throw unknown(p, field, Relation.class);
+            }
+        }
+        return relation;
+    }
+
+    private static void strings(JsonParser p, JsonToken t, List<String> target) throws IOException {
+        if (t == JsonToken.VALUE_NULL) {
+            return;
+        }
+        expect(p, t, JsonToken.START_ARRAY);
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            target.add(p.getValueAsString());
+        }
+    }
+
+    private static String text(JsonParser p, boolean withText) throws IOException {
+        if (withText) {
+            return p.getValueAsString();
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static void expect(JsonParser p, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(p, "expected " + expected + " but found " + actual);
+        }
+    }
+
+    private static JsonParseException unknown(JsonParser p, String field, Class<?> type) {
+        return new JsonParseException(p, "unknown property " + field + " of " + type.getSimpleName());
+    }
 }
@@ -0,0 +1,433 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model;
+
+import ai.koryki.model.schema.Column;
+import ai.koryki.model.schema.CompactColumn;
+import ai.koryki.model.schema.CompactRelation;
+import ai.koryki.model.schema.CompactSchema;
+import ai.koryki.model.schema.CompactTable;
+import ai.koryki.model.schema.CompactType;
+import ai.koryki.model.schema.Relation;
+import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.Table;
+import ai.koryki.model.schema.Type;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a schema and its link map, memory-mapped on load.
+ * <p>
+ * Layout, big endian: magic, version, payload length, CRC32 of the payload, then the payload:
+ * a string table (count, count + 1 offsets, UTF-8 bytes), the position of the links, then schema, tables with their
+ * columns, relations and links, all referring to strings by index, -1 for null.
+ * Strings are decoded on first use and cached.
+ */
+public class SchemaSnapshot {
+
+    public static final int MAGIC = 0x4B534E50; // KSNP
+    public static final int VERSION = 1;
+
+    private static final int HEADER = 16;
+    private static final int NULL = -1;
+
+    private final ByteBuffer buffer;
+    private final int stringCount;
+    private final int offsets;
+    private final int data;
+    private final int structure;
+    private final String[] strings;
+
+    private SchemaSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.stringCount = buffer.getInt(HEADER);
+        this.offsets = HEADER + 4;
+        this.data = offsets + 4 * (stringCount + 1);
+        this.structure = data + buffer.getInt(offsets + 4 * stringCount);
+        this.strings = new String[stringCount];
+    }
+
+    /**
+     * Map the file read only and verify header and checksum.
+     */
+    public static SchemaSnapshot load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Use a snapshot already in memory, e.g. read from the class path.
+     */
+    public static SchemaSnapshot wrap(ByteBuffer buffer) throws IOException {
+
+        if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a schema snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("unsupported snapshot version: " + version);
+        }
+        int length = buffer.getInt(8);
+        if (length != buffer.capacity() - HEADER) {
+            throw new IOException("truncated snapshot: " + (buffer.capacity() - HEADER) + " of " + length + " bytes");
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(HEADER);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != buffer.getInt(12)) {
+            throw new IOException("snapshot checksum mismatch");
+        }
+        return new SchemaSnapshot(buffer);
+    }
+
+    public Schema getSchema() {
+        return getSchema(true);
+    }
+
+    /**
+     * Build a new schema from the snapshot.
+     *
+     * @param withText false to leave comments and descriptions null, their strings are never decoded
+     */
+    public Schema getSchema(boolean withText) {
+
+        Cursor c = new Cursor(structure + 4);
+        Schema schema = new Schema(string(c.next()), text(c.next(), withText), text(c.next(), withText));
+
+        int tables = c.next();
+        for (int i = 0; i < tables; i++) {
+            Table table = new Table(string(c.next()), text(c.next(), withText), text(c.next(), withText));
+            int columns = c.next();
+            for (int j = 0; j < columns; j++) {
+                Column column = new Column(string(c.next()), text(c.next(), withText), text(c.next(), withText));
+                if (c.next() != 0) {
+                    Type type = new Type(string(c.next()), text(c.next(), withText), text(c.next(), withText));
+                    type.setDatatype(string(c.next()));
+                    column.setType(type);
+                }
+                int nullable = c.next();
+                column.setNullable(nullable == NULL ? null : nullable != 0);
+                column.setPkPos(c.next());
+                table.addColumn(column);
+            }
+            schema.addTable(table);
+        }
+
+        int relations = c.next();
+        for (int i = 0; i < relations; i++) {
+            Relation relation = new Relation(string(c.next()));
+            relation.setComment(text(c.next(), withText));
+            relation.setDescription(text(c.next(), withText));
+            relation.setStartTable(string(c.next()));
+            relation.setEndTable(string(c.next()));
+            relation.setSymmetric(c.next() != 0);
+            int n = c.next();
+            for (int j = 0; j < n; j++) {
+                relation.addStartColumn(string(c.next()));
+            }
+            n = c.next();
+            for (int j = 0; j < n; j++) {
+                relation.addEndColumn(string(c.next()));
+            }
+            schema.addRelation(relation);
+        }
+        return schema;
+    }
+
+    /**
+     * Build a compact schema that decodes comments and descriptions from the snapshot on first use.
+     */
+    public CompactSchema getCompactSchema() {
+
+        IntFunction<String> texts = this::string;
+        Cursor c = new Cursor(structure + 4);
+        String name = string(c.next());
+        int comment = c.next();
+        int description = c.next();
+
+        CompactTable[] tables = new CompactTable[c.next()];
+        for (int i = 0; i < tables.length; i++) {
+            String table = string(c.next());
+            int tableComment = c.next();
+            int tableDescription = c.next();
+            CompactColumn[] columns = new CompactColumn[c.next()];
+            for (int j = 0; j < columns.length; j++) {
+                String column = string(c.next());
+                int columnComment = c.next();
+                int columnDescription = c.next();
+                CompactType type = null;
+                int typeComment = NULL;
+                int typeDescription = NULL;
+                if (c.next() != 0) {
+                    String typeName = string(c.next());
+                    typeComment = c.next();
+                    typeDescription = c.next();
+                    type = CompactType.of(typeName, string(c.next()));
+                }
+                int nullable = c.next();
+                columns[j] = new CompactColumn(column, columnComment, columnDescription, type, typeComment, typeDescription,
+                        nullable == NULL ? null : nullable != 0, c.next(), texts);
+            }
+            tables[i] = new CompactTable(table, tableComment, tableDescription, columns, texts);
+        }
+
+        CompactRelation[] relations = new CompactRelation[c.next()];
+        for (int i = 0; i < relations.length; i++) {
+            String relation = string(c.next());
+            int relationComment = c.next();
+            int relationDescription = c.next();
+            String start = string(c.next());
+            String end = string(c.next());
+            boolean symmetric = c.next() != 0;
+            String[] startColumns = new String[c.next()];
+            for (int j = 0; j < startColumns.length; j++) {
+                startColumns[j] = string(c.next());
+            }
+            String[] endColumns = new String[c.next()];
+            for (int j = 0; j < endColumns.length; j++) {
+                endColumns[j] = string(c.next());
+            }
+            relations[i] = new CompactRelation(relation, relationComment, relationDescription, start, end, symmetric,
+                    startColumns, endColumns, texts);
+        }
+        return new CompactSchema(name, comment, description, tables, relations, texts);
+    }
+
+    /**
+     * @return a new map from link to relation names
+     */
+    public HashMap<String, List<String>> getLinks() {
+
+        Cursor c = new Cursor(linksStart());
+        int links = c.next();
+        HashMap<String, List<String>> map = new HashMap<>();
+        for (int i = 0; i < links; i++) {
+            String link = string(c.next());
+            int n = c.next();
+            List<String> names = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                names.add(string(c.next()));
+            }
+            map.put(link, names);
+        }
+        return map;
+    }
+
+    private int linksStart() {
+        return buffer.getInt(structure);
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    private String text(int i, boolean withText) {
+        return withText ? string(i) : null;
+    }
+
+    private String string(int i) {
+        if (i == NULL) {
+            return null;
+        }
+        String s = strings[i];
+        if (s == null) {
+            int start = buffer.getInt(offsets + 4 * i);
+            int end = buffer.getInt(offsets + 4 * (i + 1));
+            byte[] b = new byte[end - start];
+            ByteBuffer d = buffer.duplicate();
+            d.position(data + start);
+            d.get(b);
+            s = new String(b, StandardCharsets.UTF_8);
+            // racing threads decode the same value, strings are safely published
+            strings[i] = s;
+        }
+        return s;
+    }
+
+    private class Cursor {
+
+        private int position;
+
+        Cursor(int position) {
+            this.position = position;
+        }
+
+        int next() {
+            int i = buffer.getInt(position);
+            position += 4;
+            return i;
+        }
+    }
+
+    public static void write(Schema schema, Map<String, List<String>> links, Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(schema, links, out);
+        }
+    }
+
+    public static void write(Schema schema, Map<String, List<String>> links, OutputStream out) throws IOException {
+
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        ByteArrayOutputStream s = new ByteArrayOutputStream();
+        DataOutputStream structure = new DataOutputStream(s);
+
+        // the offset of the links section precedes the structure, so links can be read without the schema
+        structure.writeInt(0);
+        structure.writeInt(index(strings, schema.getName()));
+        structure.writeInt(index(strings, schema.getComment()));
+        structure.writeInt(index(strings, schema.getDescription()));
+
+        structure.writeInt(schema.getTables().size());
+        for (Table table : schema.getTables()) {
+            structure.writeInt(index(strings, table.getName()));
+            structure.writeInt(index(strings, table.getComment()));
+            structure.writeInt(index(strings, table.getDescription()));
+            structure.writeInt(table.getColumns().size());
+            for (Column column : table.getColumns()) {
+                structure.writeInt(index(strings, column.getName()));
+                structure.writeInt(index(strings, column.getComment()));
+                structure.writeInt(index(strings, column.getDescription()));
+                Type type = column.getType();
+                structure.writeInt(type != null ? 1 : 0);
+                if (type != null) {
+                    structure.writeInt(index(strings, type.getName()));
+                    structure.writeInt(index(strings, type.getComment()));
+                    structure.writeInt(index(strings, type.getDescription()));
+                    structure.writeInt(index(strings, type.getDatatype()));
+                }
+                structure.writeInt(column.getNullable() == null ? NULL : column.getNullable() ? 1 : 0);
+                structure.writeInt(column.getPkPos());
+            }
+        }
+
+        structure.writeInt(schema.getRelations().size());
+        for (Relation relation : schema.getRelations()) {
+            structure.writeInt(index(strings, relation.getName()));
+            structure.writeInt(index(strings, relation.getComment()));
+            structure.writeInt(index(strings, relation.getDescription()));
+            structure.writeInt(index(strings, relation.getStartTable()));
+            structure.writeInt(index(strings, relation.getEndTable()));
+            structure.writeInt(relation.isSymmetric() ? 1 : 0);
+            writeStrings(structure, strings, relation.getStartColumns());
+            writeStrings(structure, strings, relation.getEndColumns());
+        }
+
+        int linksOffset = structure.size();
+        Map<String, List<String>> l = links != null ? links : Collections.emptyMap();
+        structure.writeInt(l.size());
+        for (Map.Entry<String, List<String>> e : l.entrySet()) {
+            structure.writeInt(index(strings, e.getKey()));
+            writeStrings(structure, strings, e.getValue());
+        }
+        structure.flush();
+
+        ByteArrayOutputStream p = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(p);
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        for (String string : strings.keySet()) {
+            encoded.add(string.getBytes(StandardCharsets.UTF_8));
+        }
+        payload.writeInt(encoded.size());
+        int offset = 0;
+        payload.writeInt(offset);
+        for (byte[] b : encoded) {
+            offset += b.length;
+            payload.writeInt(offset);
+        }
+        for (byte[] b : encoded) {
+            payload.write(b);
+        }
+        int structureStart = HEADER + payload.size();
+        byte[] body = s.toByteArray();
+        ByteBuffer.wrap(body).putInt(0, structureStart + linksOffset);
+        payload.write(body);
+        payload.flush();
+
+        byte[] bytes = p.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        DataOutputStream o = new DataOutputStream(out);
+        o.writeInt(MAGIC);
+        o.writeInt(VERSION);
+        o.writeInt(bytes.length);
+        o.writeInt((int) crc.getValue());
+        o.write(bytes);
+        o.flush();
+    }
+
+    private static void writeStrings(DataOutputStream out, Map<String, Integer> strings, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String v : values) {
+            out.writeInt(index(strings, v));
+        }
+    }
+
+    private static int index(Map<String, Integer> strings, String s) {
+        if (s == null) {
+            return NULL;
+        }
+        Integer i = strings.get(s);
+        if (i == null) {
+            i = strings.size();
+            strings.put(s, i);
+        }
+        return i;
+    }
+
+    /**
+     * Convert schema and links json into a snapshot: schema.json links.json out.snapshot
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 3) {
+            System.err.println("usage: SchemaSnapshot schema.json links.json out.snapshot");
+            System.exit(1);
+        }
+        Schema schema;
+        try (FileInputStream in = new FileInputStream(args[0])) {
+            schema = JsonUtil.streamDatabaseJson(in, true);
+        }
+        HashMap<String, List<String>> links = JsonUtil.readHashSetFromJson(new FileInputStream(args[1]));
+        write(schema, links, Paths.get(args[2]));
+    }
+}
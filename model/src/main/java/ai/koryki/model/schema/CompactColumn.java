@@ -0,0 +1,90 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import java.util.function.IntFunction;
+
+/**
+ * Immutable column, comment and description of column and type are looked up in the schema's texts.
+ */
+public final class CompactColumn {
+
+    private static final byte NULLABLE_UNKNOWN = -1;
+
+    private final String name;
+    private final int comment;
+    private final int description;
+    private final CompactType type;
+    private final int typeComment;
+    private final int typeDescription;
+    private final byte nullable;
+    private final int pkPos;
+    private final IntFunction<String> texts;
+
+    public CompactColumn(String name, int comment, int description, CompactType type, int typeComment, int typeDescription,
+                         Boolean nullable, int pkPos, IntFunction<String> texts) {
+        this.name = CompactSchema.intern(name);
+        this.comment = comment;
+        this.description = description;
+        this.type = type;
+        this.typeComment = typeComment;
+        this.typeDescription = typeDescription;
+        this.nullable = nullable == null ? NULLABLE_UNKNOWN : (byte) (nullable ? 1 : 0);
+        this.pkPos = pkPos;
+        this.texts = texts;
+    }
+
+    public Column toColumn() {
+        Column column = new Column(name, getComment(), getDescription());
+        column.setType(type != null ? type.toType(getTypeComment(), getTypeDescription()) : null);
+        column.setNullable(getNullable());
+        column.setPkPos(pkPos);
+        return column;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getComment() {
+        return texts.apply(comment);
+    }
+
+    public String getDescription() {
+        return texts.apply(description);
+    }
+
+    public CompactType getType() {
+        return type;
+    }
+
+    public String getTypeComment() {
+        return texts.apply(typeComment);
+    }
+
+    public String getTypeDescription() {
+        return texts.apply(typeDescription);
+    }
+
+    public Boolean getNullable() {
+        return nullable == NULLABLE_UNKNOWN ? null : nullable != 0;
+    }
+
+    public int getPkPos() {
+        return pkPos;
+    }
+}
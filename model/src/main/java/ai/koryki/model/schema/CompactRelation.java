@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Immutable relation, comment and description are looked up in the schema's texts.
+ */
+public final class CompactRelation {
+
+    private final String name;
+    private final int comment;
+    private final int description;
+    private final String startTable;
+    private final String endTable;
+    private final boolean symmetric;
+    private final String[] startColumns;
+    private final String[] endColumns;
+    private final IntFunction<String> texts;
+
+    public CompactRelation(String name, int comment, int description, String startTable, String endTable, boolean symmetric,
+                           String[] startColumns, String[] endColumns, IntFunction<String> texts) {
+        this.name = CompactSchema.intern(name);
+        this.comment = comment;
+        this.description = description;
+        this.startTable = CompactSchema.intern(startTable);
+        this.endTable = CompactSchema.intern(endTable);
+        this.symmetric = symmetric;
+        this.startColumns = CompactSchema.intern(startColumns.clone());
+        this.endColumns = CompactSchema.intern(endColumns.clone());
+        this.texts = texts;
+    }
+
+    public Relation toRelation() {
+        Relation relation = new Relation(name);
+        relation.setComment(getComment());
+        relation.setDescription(getDescription());
+        relation.setStartTable(startTable);
+        relation.setEndTable(endTable);
+        relation.setSymmetric(symmetric);
+        for (String c : startColumns) {
+            relation.addStartColumn(c);
+        }
+        for (String c : endColumns) {
+            relation.addEndColumn(c);
+        }
+        return relation;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getComment() {
+        return texts.apply(comment);
+    }
+
+    public String getDescription() {
+        return texts.apply(description);
+    }
+
+    public String getStartTable() {
+        return startTable;
+    }
+
+    public String getEndTable() {
+        return endTable;
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    public List<String> getStartColumns() {
+        return Collections.unmodifiableList(Arrays.asList(startColumns));
+    }
+
+    public List<String> getEndColumns() {
+        return Collections.unmodifiableList(Arrays.asList(endColumns));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Immutable, compact variant of Schema for hosting many tenants in one JVM.
+ * <p>
+ * Identifiers are interned and shared across schemas, equal types are shared, lists are arrays.
+ * Comments and descriptions are kept out of the entities, they refer to them by index into a text
+ * source, e.g. an array or a SchemaSnapshot decoding them on first use. Index -1 stands for null.
+ */
+public final class CompactSchema {
+
+    private final String name;
+    private final int comment;
+    private final int description;
+    private final CompactTable[] tables;
+    private final CompactRelation[] relations;
+    private final IntFunction<String> texts;
+
+    private volatile Map<String, CompactTable> tableIndex;
+    private volatile Map<String, CompactRelation> relationIndex;
+
+    public CompactSchema(String name, int comment, int description, CompactTable[] tables, CompactRelation[] relations, IntFunction<String> texts) {
+        this.name = intern(name);
+        this.comment = comment;
+        this.description = description;
+        this.tables = tables.clone();
+        this.relations = relations.clone();
+        this.texts = texts;
+    }
+
+    public static CompactSchema of(Schema schema) {
+
+        Texts t = new Texts();
+        IntFunction<String> texts = t::get;
+
+        CompactTable[] tables = new CompactTable[schema.getTables().size()];
+        for (int i = 0; i < tables.length; i++) {
+            Table table = schema.getTables().get(i);
+            CompactColumn[] columns = new CompactColumn[table.getColumns().size()];
+            for (int j = 0; j < columns.length; j++) {
+                Column c = table.getColumns().get(j);
+                Type type = c.getType();
+                columns[j] = new CompactColumn(c.getName(), t.add(c.getComment()), t.add(c.getDescription()),
+                        CompactType.of(type), type != null ? t.add(type.getComment()) : -1, type != null ? t.add(type.getDescription()) : -1,
+                        c.getNullable(), c.getPkPos(), texts);
+            }
+            tables[i] = new CompactTable(table.getName(), t.add(table.getComment()), t.add(table.getDescription()), columns, texts);
+        }
+
+        CompactRelation[] relations = new CompactRelation[schema.getRelations().size()];
+        for (int i = 0; i < relations.length; i++) {
+            Relation r = schema.getRelations().get(i);
+            relations[i] = new CompactRelation(r.getName(), t.add(r.getComment()), t.add(r.getDescription()),
+                    r.getStartTable(), r.getEndTable(), r.isSymmetric(),
+                    array(r.getStartColumns()), array(r.getEndColumns()), texts);
+        }
+        int comment = t.add(schema.getComment());
+        int description = t.add(schema.getDescription());
+        t.freeze();
+        return new CompactSchema(schema.getName(), comment, description, tables, relations, texts);
+    }
+
+    public Schema toSchema() {
+        Schema schema = new Schema(name, getComment(), getDescription());
+        for (CompactTable t : tables) {
+            schema.addTable(t.toTable());
+        }
+        for (CompactRelation r : relations) {
+            schema.addRelation(r.toRelation());
+        }
+        return schema;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getComment() {
+        return texts.apply(comment);
+    }
+
+    public String getDescription() {
+        return texts.apply(description);
+    }
+
+    public List<CompactTable> getTables() {
+        return Collections.unmodifiableList(Arrays.asList(tables));
+    }
+
+    public List<CompactRelation> getRelations() {
+        return Collections.unmodifiableList(Arrays.asList(relations));
+    }
+
+    public Optional<CompactTable> getTable(String name) {
+        Map<String, CompactTable> index = tableIndex;
+        if (index == null) {
+            index = index(tables, CompactTable::getName);
+            tableIndex = index;
+        }
+        return Optional.ofNullable(index.get(NameIndex.key(name)));
+    }
+
+    public Optional<CompactRelation> getRelation(String name) {
+        Map<String, CompactRelation> index = relationIndex;
+        if (index == null) {
+            index = index(relations, CompactRelation::getName);
+            relationIndex = index;
+        }
+        return Optional.ofNullable(index.get(NameIndex.key(name)));
+    }
+
+    private static <T> Map<String, T> index(T[] elements, Function<T, String> name) {
+        Map<String, T> map = new HashMap<>(elements.length * 4 / 3 + 1);
+        for (T t : elements) {
+            map.putIfAbsent(NameIndex.key(name.apply(t)), t);
+        }
+        return map;
+    }
+
+    static String intern(String s) {
+        return s != null ? s.intern() : null;
+    }
+
+    static String[] intern(String[] s) {
+        for (int i = 0; i < s.length; i++) {
+            s[i] = intern(s[i]);
+        }
+        return s;
+    }
+
+    private static String[] array(List<String> list) {
+        return list != null ? list.toArray(new String[0]) : new String[0];
+    }
+
+    /**
+     * Collects distinct texts while converting, then keeps them in an array.
+     */
+    private static class Texts {
+
+        private Map<String, Integer> indexes = new HashMap<>();
+        private List<String> collected = new ArrayList<>();
+        private String[] texts;
+
+        int add(String text) {
+            if (text == null) {
+                return -1;
+            }
+            Integer i = indexes.get(text);
+            if (i == null) {
+                i = collected.size();
+                indexes.put(text, i);
+                collected.add(text);
+            }
+            return i;
+        }
+
+        void freeze() {
+            texts = collected.toArray(new String[0]);
+            indexes = null;
+            collected = null;
+        }
+
+        String get(int i) {
+            return i < 0 ? null : texts[i];
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+/**
+ * Immutable table, comment and description are looked up in the schema's texts.
+ */
+public final class CompactTable {
+
+    private final String name;
+    private final int comment;
+    private final int description;
+    private final CompactColumn[] columns;
+    // NameIndex keys of the columns
+    private final String[] keys;
+    private final IntFunction<String> texts;
+
+    public CompactTable(String name, int comment, int description, CompactColumn[] columns, IntFunction<String> texts) {
+        this.name = CompactSchema.intern(name);
+        this.comment = comment;
+        this.description = description;
+        this.columns = columns.clone();
+        this.keys = new String[columns.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = NameIndex.key(columns[i].getName());
+        }
+        this.texts = texts;
+    }
+
+    public Table toTable() {
+        Table table = new Table(name, getComment(), getDescription());
+        for (CompactColumn c : columns) {
+            table.addColumn(c.toColumn());
+        }
+        return table;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getComment() {
+        return texts.apply(comment);
+    }
+
+    public String getDescription() {
+        return texts.apply(description);
+    }
+
+    public List<CompactColumn> getColumns() {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    /**
+     * Linear scan, tables have few columns.
+     */
+    public Optional<CompactColumn> getColumn(String name) {
+        String key = NameIndex.key(name);
+        for (int i = 0; i < keys.length; i++) {
+            if (Objects.equals(keys[i], key)) {
+                return Optional.of(columns[i]);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable type name and datatype, equal ones are shared by all compact schemas.
+ * The type's comment and description belong to the column, see {@link CompactColumn}.
+ */
+public final class CompactType {
+
+    private static final ConcurrentHashMap<CompactType, CompactType> TYPES = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String datatype;
+    private final int hash;
+
+    private CompactType(String name, String datatype) {
+        this.name = CompactSchema.intern(name);
+        this.datatype = CompactSchema.intern(datatype);
+        this.hash = Objects.hash(name, datatype);
+    }
+
+    public static CompactType of(Type type) {
+        return type == null ? null : of(type.getName(), type.getDatatype());
+    }
+
+    public static CompactType of(String name, String datatype) {
+        CompactType t = new CompactType(name, datatype);
+        CompactType shared = TYPES.putIfAbsent(t, t);
+        return shared != null ? shared : t;
+    }
+
+    public Type toType(String comment, String description) {
+        Type type = new Type(name, comment, description);
+        type.setDatatype(datatype);
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDatatype() {
+        return datatype;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactType)) {
+            return false;
+        }
+        CompactType t = (CompactType) o;
+        return Objects.equals(name, t.name) && Objects.equals(datatype, t.datatype);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
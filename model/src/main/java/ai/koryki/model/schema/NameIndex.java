@@ -0,0 +1,134 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Hash index by name over a list of tables, columns or relations. Keys are lower case without quotes,
+ * like Identifier.lowercase. The index is rebuilt when the list was replaced or changed its size
+ * behind the owners back, e.g. through getTables().add(..).
+ * The first element wins for duplicate names, as with a linear scan.
+ */
+class NameIndex<T> {
+
+    private final Function<T, String> name;
+    private volatile Snapshot<T> snapshot;
+
+    NameIndex(Function<T, String> name) {
+        this.name = name;
+    }
+
+    static String key(String name) {
+        if (name == null) {
+            return null;
+        }
+        String n = name;
+        if (n.startsWith("\"")) {
+            n = n.substring(1);
+        }
+        if (n.endsWith("\"")) {
+            n = n.substring(0, n.length() - 1);
+        }
+        return n.toLowerCase();
+    }
+
+    Optional<T> get(List<T> list, String key) {
+        Snapshot<T> s = snapshot;
+        if (s == null || s.list != list || s.size != list.size()) {
+            s = build(list);
+        }
+        return Optional.ofNullable(s.map.get(key(key)));
+    }
+
+    /**
+     * Keep the index in sync after element was appended to list.
+     */
+    void added(List<T> list, T element) {
+        Snapshot<T> s = snapshot;
+        if (s != null && s.list == list && s.size == list.size() - 1) {
+            if (s.map.putIfAbsent(key(name.apply(element)), element) != null) {
+                s.duplicates = true;
+            }
+            s.size++;
+        }
+    }
+
+    /**
+     * Keep the index in sync after element was removed from list.
+     */
+    void removed(List<T> list, T element) {
+        Snapshot<T> s = snapshot;
+        if (s != null && s.list == list && s.size == list.size() + 1 && !s.duplicates) {
+            s.map.remove(key(name.apply(element)), element);
+            s.size--;
+        } else {
+            // another element of that name may take over
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Keep the index in sync after old was replaced by element at the same position.
+     */
+    void replaced(List<T> list, T old, T element) {
+        Snapshot<T> s = snapshot;
+        if (s != null && s.list == list && s.size == list.size()) {
+            String oldKey = key(name.apply(old));
+            String key = key(name.apply(element));
+            if (!Objects.equals(oldKey, key)) {
+                snapshot = null;
+            } else if (s.map.get(key) == old) {
+                s.map.put(key, element);
+            }
+        }
+    }
+
+    void clear() {
+        snapshot = null;
+    }
+
+    private Snapshot<T> build(List<T> list) {
+        Map<String, T> map = new HashMap<>(list.size() * 4 / 3 + 1);
+        boolean duplicates = false;
+        for (T t : list) {
+            duplicates |= map.putIfAbsent(key(name.apply(t)), t) != null;
+        }
+        Snapshot<T> s = new Snapshot<>(list, list.size(), map);
+        s.duplicates = duplicates;
+        snapshot = s;
+        return s;
+    }
+
+    private static class Snapshot<T> {
+        private final List<T> list;
+        private int size;
+        private final Map<String, T> map;
+        private boolean duplicates;
+
+        private Snapshot(List<T> list, int size, Map<String, T> map) {
+            this.list = list;
+            this.size = size;
+            this.map = map;
+        }
+    }
+}
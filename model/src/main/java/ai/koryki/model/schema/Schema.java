@@ -27,6 +27,8 @@ public class Schema implements Cloneable {
     private String description;
     private List<Table> tables;
     private List<Relation> relations;
+    private final NameIndex<Table> tableIndex = new NameIndex<>(Table::getName);
+    private final NameIndex<Relation> relationIndex = new NameIndex<>(Relation::getName);
 
     public Schema() {
         this(null);
@@ -78,6 +80,7 @@ public class Schema implements Cloneable {
 
     public void setTables(List<Table> tables) {
         this.tables = new ArrayList<>(tables);
+        tableIndex.clear();
     }
 
     public List<Relation> getRelations() {
@@ -86,22 +89,88 @@ public class Schema implements Cloneable {
 
     public void setRelations(List<Relation> relations) {
         this.relations = new ArrayList<>(relations);
+        relationIndex.clear();
     }
 
     public void addTable(Table table) {
         this.tables.add(table);
+        tableIndex.added(tables, table);
     }
 
     public void addRelation(Relation relation) {
         this.relations.add(relation);
-    }
-
+        relationIndex.added(relations, relation);
+    }
+
+    /**
+     * Remove this very table, the index is updated instead of rebuilt.
+     *
+     * @return false if the table is not part of the schema
+     */
+    public boolean removeTable(Table table) {
+        int i = indexOf(tables, table);
+        if (i < 0) {
+            return false;
+        }
+        tables.remove(i);
+        tableIndex.removed(tables, table);
+        return true;
+    }
+
+    /**
+     * Put table at the position of old, the index is updated instead of rebuilt.
+     *
+     * @return false if old is not part of the schema
+     */
+    public boolean replaceTable(Table old, Table table) {
+        int i = indexOf(tables, old);
+        if (i < 0) {
+            return false;
+        }
+        tables.set(i, table);
+        tableIndex.replaced(tables, old, table);
+        return true;
+    }
+
+    public boolean removeRelation(Relation relation) {
+        int i = indexOf(relations, relation);
+        if (i < 0) {
+            return false;
+        }
+        relations.remove(i);
+        relationIndex.removed(relations, relation);
+        return true;
+    }
+
+    public boolean replaceRelation(Relation old, Relation relation) {
+        int i = indexOf(relations, old);
+        if (i < 0) {
+            return false;
+        }
+        relations.set(i, relation);
+        relationIndex.replaced(relations, old, relation);
+        return true;
+    }
+
+    private static <T> int indexOf(List<T> list, T element) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hash lookup, case insensitive and without quotes. Renaming a table already added
+     * requires {@link #setTables(List)} to refresh the index.
+     */
     public Optional<Table> getTable(String name) {
-        return tables.stream().filter(t -> t.getName().equals(name)).findFirst();
+        return tableIndex.get(tables, name);
     }
 
     public Optional<Relation> getRelation(String name) {
-        return relations.stream().filter(r -> r.getName().equals(name)).findFirst();
+        return relationIndex.get(relations, name);
     }
 
     @Override
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Differences between two schemas and their link maps: added, removed and changed tables, columns,
+ * relations and links. Tables, columns and relations are matched by name like the schema lookups,
+ * links by their exact key.
+ * <p>
+ * The affected tables are the changed tables plus both ends of changed relations and of the relations
+ * named by changed links, before and after. Structures derived from a schema only need to be updated
+ * for these.
+ */
+public class SchemaDiff {
+
+    private final List<Change<Table>> tables = new ArrayList<>();
+    private final List<Change<Column>> columns = new ArrayList<>();
+    private final List<Change<Relation>> relations = new ArrayList<>();
+    private final List<Change<List<String>>> links = new ArrayList<>();
+    private final Set<String> affectedTables = new LinkedHashSet<>();
+
+    private SchemaDiff() {
+    }
+
+    public static SchemaDiff compute(Schema before, Schema after) {
+        return compute(before, Collections.emptyMap(), after, Collections.emptyMap());
+    }
+
+    public static SchemaDiff compute(Schema before, Map<String, List<String>> linksBefore, Schema after, Map<String, List<String>> linksAfter) {
+
+        SchemaDiff diff = new SchemaDiff();
+
+        Set<String> seen = new HashSet<>();
+        for (Table b : before.getTables()) {
+            if (!seen.add(NameIndex.key(b.getName()))) {
+                continue;
+            }
+            Optional<Table> a = after.getTable(b.getName());
+            if (!a.isPresent()) {
+                diff.tables.add(new Change<>(b.getName(), b, null));
+            } else if (!sameTable(b, a.get())) {
+                diff.tables.add(new Change<>(b.getName(), b, a.get()));
+                diff.columns(b, a.get());
+            }
+        }
+        for (Table a : after.getTables()) {
+            if (!before.getTable(a.getName()).isPresent() && seen.add(NameIndex.key(a.getName()))) {
+                diff.tables.add(new Change<>(a.getName(), null, a));
+            }
+        }
+        for (Change<Table> c : diff.tables) {
+            diff.affectedTables.add(NameIndex.key(c.name));
+        }
+
+        seen.clear();
+        for (Relation b : before.getRelations()) {
+            if (!seen.add(NameIndex.key(b.getName()))) {
+                continue;
+            }
+            Optional<Relation> a = after.getRelation(b.getName());
+            if (!a.isPresent()) {
+                diff.relations.add(new Change<>(b.getName(), b, null));
+            } else if (!sameRelation(b, a.get())) {
+                diff.relations.add(new Change<>(b.getName(), b, a.get()));
+            }
+        }
+        for (Relation a : after.getRelations()) {
+            if (!before.getRelation(a.getName()).isPresent() && seen.add(NameIndex.key(a.getName()))) {
+                diff.relations.add(new Change<>(a.getName(), null, a));
+            }
+        }
+        for (Change<Relation> c : diff.relations) {
+            diff.affect(c.before);
+            diff.affect(c.after);
+        }
+
+        for (Map.Entry<String, List<String>> b : linksBefore.entrySet()) {
+            List<String> a = linksAfter.get(b.getKey());
+            if (!Objects.equals(b.getValue(), a)) {
+                diff.links.add(new Change<>(b.getKey(), b.getValue(), a));
+            }
+        }
+        for (Map.Entry<String, List<String>> a : linksAfter.entrySet()) {
+            if (!linksBefore.containsKey(a.getKey())) {
+                diff.links.add(new Change<>(a.getKey(), null, a.getValue()));
+            }
+        }
+        for (Change<List<String>> c : diff.links) {
+            diff.affect(before, c.before);
+            diff.affect(after, c.after);
+        }
+        return diff;
+    }
+
+    private void columns(Table before, Table after) {
+        Set<String> seen = new HashSet<>();
+        for (Column b : before.getColumns()) {
+            if (!seen.add(NameIndex.key(b.getName()))) {
+                continue;
+            }
+            Optional<Column> a = after.getColumn(b.getName());
+            if (!a.isPresent()) {
+                columns.add(new Change<>(before.getName() + "." + b.getName(), b, null));
+            } else if (!sameColumn(b, a.get())) {
+                columns.add(new Change<>(before.getName() + "." + b.getName(), b, a.get()));
+            }
+        }
+        for (Column a : after.getColumns()) {
+            if (!before.getColumn(a.getName()).isPresent() && seen.add(NameIndex.key(a.getName()))) {
+                columns.add(new Change<>(after.getName() + "." + a.getName(), null, a));
+            }
+        }
+    }
+
+    private void affect(Relation r) {
+        if (r != null) {
+            affectedTables.add(NameIndex.key(r.getStartTable()));
+            affectedTables.add(NameIndex.key(r.getEndTable()));
+        }
+    }
+
+    private void affect(Schema schema, List<String> relationNames) {
+        if (relationNames != null) {
+            for (String name : relationNames) {
+                schema.getRelation(name).ifPresent(this::affect);
+            }
+        }
+    }
+
+    private static boolean sameTable(Table b, Table a) {
+        if (!Objects.equals(b.getName(), a.getName()) || !Objects.equals(b.getComment(), a.getComment())
+                || !Objects.equals(b.getDescription(), a.getDescription()) || b.getColumns().size() != a.getColumns().size()) {
+            return false;
+        }
+        for (int i = 0; i < b.getColumns().size(); i++) {
+            if (!sameColumn(b.getColumns().get(i), a.getColumns().get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameColumn(Column b, Column a) {
+        return Objects.equals(b.getName(), a.getName()) && Objects.equals(b.getComment(), a.getComment())
+                && Objects.equals(b.getDescription(), a.getDescription()) && Objects.equals(b.getNullable(), a.getNullable())
+                && b.getPkPos() == a.getPkPos() && sameType(b.getType(), a.getType());
+    }
+
+    private static boolean sameType(Type b, Type a) {
+        if (b == null || a == null) {
+            return b == a;
+        }
+        return Objects.equals(b.getName(), a.getName()) && Objects.equals(b.getComment(), a.getComment())
+                && Objects.equals(b.getDescription(), a.getDescription()) && Objects.equals(b.getDatatype(), a.getDatatype());
+    }
+
+    private static boolean sameRelation(Relation b, Relation a) {
+        return Objects.equals(b.getName(), a.getName()) && Objects.equals(b.getComment(), a.getComment())
+                && Objects.equals(b.getDescription(), a.getDescription())
+                && Objects.equals(b.getStartTable(), a.getStartTable()) && Objects.equals(b.getEndTable(), a.getEndTable())
+                && b.isSymmetric() == a.isSymmetric()
+                && Objects.equals(b.getStartColumns(), a.getStartColumns()) && Objects.equals(b.getEndColumns(), a.getEndColumns());
+    }
+
+    /**
+     * Turn target, equal to the before schema, into the after schema, updating its indexes instead of rebuilding them.
+     * Tables and relations of the after schema are shared, not copied.
+     */
+    public void apply(Schema target) {
+        for (Change<Table> c : tables) {
+            Optional<Table> t = target.getTable(c.name);
+            if (c.after == null) {
+                t.ifPresent(target::removeTable);
+            } else if (t.isPresent()) {
+                target.replaceTable(t.get(), c.after);
+            } else {
+                target.addTable(c.after);
+            }
+        }
+        for (Change<Relation> c : relations) {
+            Optional<Relation> r = target.getRelation(c.name);
+            if (c.after == null) {
+                r.ifPresent(target::removeRelation);
+            } else if (r.isPresent()) {
+                target.replaceRelation(r.get(), c.after);
+            } else {
+                target.addRelation(c.after);
+            }
+        }
+    }
+
+    /**
+     * Turn target, equal to the before links, into the after links.
+     */
+    public void applyLinks(Map<String, List<String>> target) {
+        for (Change<List<String>> c : links) {
+            if (c.after == null) {
+                target.remove(c.name);
+            } else {
+                target.put(c.name, c.after);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return tables.isEmpty() && relations.isEmpty() && links.isEmpty();
+    }
+
+    public boolean isAffected(String table) {
+        return affectedTables.contains(NameIndex.key(table));
+    }
+
+    /**
+     * @return true if the relation of that name, matched like the schema lookups, was added, removed or changed
+     */
+    public boolean isRelationChanged(String relation) {
+        String key = NameIndex.key(relation);
+        for (Change<Relation> c : relations) {
+            if (NameIndex.key(c.name).equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return names of affected tables, lower case without quotes
+     */
+    public Set<String> getAffectedTables() {
+        return Collections.unmodifiableSet(affectedTables);
+    }
+
+    public List<Change<Table>> getTables() {
+        return Collections.unmodifiableList(tables);
+    }
+
+    /**
+     * @return column changes of changed tables, named table.column
+     */
+    public List<Change<Column>> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    public List<Change<Relation>> getRelations() {
+        return Collections.unmodifiableList(relations);
+    }
+
+    public List<Change<List<String>>> getLinks() {
+        return Collections.unmodifiableList(links);
+    }
+
+    @Override
+    public String toString() {
+        return "tables: " + tables + ", columns: " + columns + ", relations: " + relations + ", links: " + links;
+    }
+
+    /**
+     * An added (no before), removed (no after) or changed element.
+     */
+    public static class Change<T> {
+
+        private final String name;
+        private final T before;
+        private final T after;
+
+        Change(String name, T before, T after) {
+            this.name = name;
+            this.before = before;
+            this.after = after;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public T getBefore() {
+            return before;
+        }
+
+        public T getAfter() {
+            return after;
+        }
+
+        public boolean isAdded() {
+            return before == null;
+        }
+
+        public boolean isRemoved() {
+            return after == null;
+        }
+
+        @Override
+        public String toString() {
+            return (isAdded() ? "+" : isRemoved() ? "-" : "~") + name;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Copy-on-write view of a base schema, e.g. a tenant's customization.
+ * <p>
+ * A version shares the base schema's tables and relations and records only replaced, added and
+ * hidden ones. Deriving a version copies the parent's deltas, not the schema, so lookups are one
+ * probe into the deltas plus one into the base, however long the chain. Hiding a table hides the
+ * relations starting or ending there as well. Neither the base schema nor shared tables and
+ * relations may be modified, replace them instead. A version keeps no reference to its parent,
+ * so intermediate versions of a chain can be collected.
+ */
+public final class SchemaVersion {
+
+    private final Schema base;
+    private final int version;
+    // key as in NameIndex, null value for hidden
+    private final Map<String, Table> tables;
+    private final Map<String, Relation> relations;
+
+    private volatile Schema schema;
+
+    private SchemaVersion(Schema base, int version, Map<String, Table> tables, Map<String, Relation> relations) {
+        this.base = base;
+        this.version = version;
+        this.tables = tables;
+        this.relations = relations;
+    }
+
+    public static SchemaVersion of(Schema base) {
+        return new SchemaVersion(base, 0, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Add table or replace the one with the same name.
+     */
+    public SchemaVersion withTable(Table table) {
+        Map<String, Table> t = new LinkedHashMap<>(tables);
+        t.put(NameIndex.key(table.getName()), table);
+        return new SchemaVersion(base, version + 1, t, relations);
+    }
+
+    public SchemaVersion withoutTable(String name) {
+        Map<String, Table> t = new LinkedHashMap<>(tables);
+        t.put(NameIndex.key(name), null);
+        return new SchemaVersion(base, version + 1, t, relations);
+    }
+
+    /**
+     * Add relation or replace the one with the same name.
+     */
+    public SchemaVersion withRelation(Relation relation) {
+        Map<String, Relation> r = new LinkedHashMap<>(relations);
+        r.put(NameIndex.key(relation.getName()), relation);
+        return new SchemaVersion(base, version + 1, tables, r);
+    }
+
+    public SchemaVersion withoutRelation(String name) {
+        Map<String, Relation> r = new LinkedHashMap<>(relations);
+        r.put(NameIndex.key(name), null);
+        return new SchemaVersion(base, version + 1, tables, r);
+    }
+
+    public Optional<Table> getTable(String name) {
+        String key = NameIndex.key(name);
+        if (tables.containsKey(key)) {
+            return Optional.ofNullable(tables.get(key));
+        }
+        return base.getTable(name);
+    }
+
+    public Optional<Relation> getRelation(String name) {
+        String key = NameIndex.key(name);
+        Optional<Relation> r = relations.containsKey(key) ? Optional.ofNullable(relations.get(key)) : base.getRelation(name);
+        return r.filter(this::isVisible);
+    }
+
+    private boolean isVisible(Relation r) {
+        return isVisible(r.getStartTable()) && isVisible(r.getEndTable());
+    }
+
+    private boolean isVisible(String table) {
+        String key = NameIndex.key(table);
+        return !tables.containsKey(key) || tables.get(key) != null;
+    }
+
+    /**
+     * Base tables in their order with replacements, then added ones.
+     */
+    public List<Table> getTables() {
+        return getSchema().getTables();
+    }
+
+    public List<Relation> getRelations() {
+        return getSchema().getRelations();
+    }
+
+    /**
+     * Schema of this version for translation, sharing tables and relations with the base.
+     * Built on first use, it must not be modified.
+     */
+    public Schema getSchema() {
+        Schema s = schema;
+        if (s == null) {
+            List<Relation> r = merge(base.getRelations(), relations, Relation::getName);
+            if (tables.containsValue(null)) {
+                r = r.stream().filter(this::isVisible).collect(Collectors.toList());
+            }
+            s = new Schema(base.getName(), base.getComment(), base.getDescription(), merge(base.getTables(), tables, Table::getName), r);
+            schema = s;
+        }
+        return s;
+    }
+
+    private static <T> List<T> merge(List<T> base, Map<String, T> delta, Function<T, String> name) {
+        if (delta.isEmpty()) {
+            return base;
+        }
+        List<T> merged = new ArrayList<>(base.size() + delta.size());
+        Set<String> replaced = new HashSet<>();
+        for (T t : base) {
+            String key = NameIndex.key(name.apply(t));
+            if (!delta.containsKey(key)) {
+                merged.add(t);
+            } else if (replaced.add(key) && delta.get(key) != null) {
+                merged.add(delta.get(key));
+            }
+        }
+        for (Map.Entry<String, T> e : delta.entrySet()) {
+            if (e.getValue() != null && !replaced.contains(e.getKey())) {
+                merged.add(e.getValue());
+            }
+        }
+        return merged;
+    }
+
+    public Schema getBase() {
+        return base;
+    }
+
+    /**
+     * @return number of derivations from the base, 0 for the base itself
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return number of replaced, added and hidden tables and relations
+     */
+    public int getDeltaSize() {
+        return tables.size() + relations.size();
+    }
+}
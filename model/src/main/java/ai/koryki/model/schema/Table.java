@@ -26,6 +26,7 @@ public class Table implements  Cloneable {
     private String comment;
     private String description;
     private List<Column> columns;
+    private final NameIndex<Column> columnIndex = new NameIndex<>(Column::getName);
 
     public Table()  {
         this(null, null, null, new ArrayList<>());
@@ -76,14 +77,19 @@ public class Table implements  Cloneable {
 
     public void setColumns(List<Column> columns) {
         this.columns = new ArrayList<>(columns);
+        columnIndex.clear();
     }
 
     public void addColumn(Column column) {
         this.columns.add(column);
+        columnIndex.added(columns, column);
     }
 
+    /**
+     * Hash lookup, case insensitive and without quotes.
+     */
     public Optional<Column> getColumn(String name) {
-        return columns.stream().filter(c -> c.getName().equals(name)).findFirst();
+        return columnIndex.get(columns, name);
     }
 
 
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model;
+
+import ai.koryki.model.schema.Column;
+import ai.koryki.model.schema.Relation;
+import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.Table;
+import ai.koryki.model.schema.Type;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonUtilTest {
+
+    @Test
+    public void stream() throws IOException {
+
+        Schema schema = new Schema("northwind", "comment", "description");
+        Table orders = new Table("orders", "all orders", "long text");
+        Column id = new Column("order_id", "key", null);
+        Type type = new Type("smallint", "a type", null);
+        type.setDatatype("smallint");
+        id.setType(type);
+        id.setNullable(false);
+        id.setPkPos(1);
+        orders.addColumn(id);
+        orders.addColumn(new Column("customer_id"));
+        schema.addTable(orders);
+        schema.addTable(new Table("customers"));
+        Relation r = new Relation("orders_customers");
+        r.setStartTable("orders");
+        r.setEndTable("customers");
+        r.setSymmetric(true);
+        r.addStartColumn("customer_id");
+        r.addEndColumn("customer_id");
+        schema.addRelation(r);
+
+        byte[] json = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsBytes(schema);
+
+        Schema bound = JsonUtil.readDatabaseJson(new ByteArrayInputStream(json));
+        Schema streamed = JsonUtil.streamDatabaseJson(new ByteArrayInputStream(json), true);
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.writeValueAsString(bound), mapper.writeValueAsString(streamed));
+        assertEquals("long text", streamed.getTable("orders").get().getDescription());
+        assertEquals(Collections.singletonList("customer_id"), streamed.getRelation("orders_customers").get().getEndColumns());
+
+        Schema lean = JsonUtil.streamDatabaseJson(new ByteArrayInputStream(json), false);
+        assertEquals("northwind", lean.getName());
+        assertNull(lean.getComment());
+        Column c = lean.getTable("orders").get().getColumn("order_id").get();
+        assertNull(c.getComment());
+        assertNull(c.getType().getComment());
+        assertEquals("smallint", c.getType().getDatatype());
+        assertFalse(c.getNullable());
+        assertEquals(1, c.getPkPos());
+        assertTrue(lean.getRelation("orders_customers").get().isSymmetric());
+
+        byte[] unknown = "{\"name\":\"x\",\"tabels\":[]}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(JsonParseException.class, () -> JsonUtil.streamDatabaseJson(new ByteArrayInputStream(unknown), true));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model;
+
+import ai.koryki.model.schema.Column;
+import ai.koryki.model.schema.Relation;
+import ai.koryki.model.schema.Schema;
+import ai.koryki.model.schema.Table;
+import ai.koryki.model.schema.Type;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void roundTrip() throws IOException {
+
+        Schema original = new Schema("northwind", null, "Northwind sells products, äöü");
+        for (int i = 0; i < 20; i++) {
+            Table table = new Table("table_" + i, "comment " + i, null);
+            for (int j = 0; j < 5; j++) {
+                Column column = new Column("column_" + j, null, "description " + j);
+                Type type = new Type("character varying");
+                type.setDatatype("varchar");
+                column.setType(type);
+                column.setNullable(j % 3 == 0 ? null : j % 2 == 0);
+                column.setPkPos(j == 0 ? 1 : 0);
+                table.addColumn(column);
+            }
+            table.addColumn(new Column("untyped"));
+            original.addTable(table);
+            if (i > 0) {
+                Relation r = new Relation("table_" + i + "_table_0");
+                r.setStartTable("table_" + i);
+                r.setEndTable("table_0");
+                r.setSymmetric(i % 2 == 0);
+                r.addStartColumn("column_1");
+                r.addEndColumn("column_0");
+                original.addRelation(r);
+            }
+        }
+        Map<String, List<String>> links = new HashMap<>();
+        links.put("parent", Arrays.asList("table_1_table_0", "table_2_table_0"));
+
+        ObjectMapper mapper = new ObjectMapper();
+        Schema json = JsonUtil.readDatabaseJson(new ByteArrayInputStream(mapper.writeValueAsBytes(original)));
+
+        Path file = dir.resolve("northwind.snapshot");
+        SchemaSnapshot.write(json, links, file);
+        SchemaSnapshot snapshot = SchemaSnapshot.load(file);
+
+        assertEquals(mapper.writeValueAsString(json), mapper.writeValueAsString(snapshot.getSchema()));
+        assertEquals(links, snapshot.getLinks());
+        assertEquals(mapper.writeValueAsString(json), mapper.writeValueAsString(snapshot.getCompactSchema().toSchema()));
+
+        Schema lean = snapshot.getSchema(false);
+        assertNull(lean.getDescription());
+        assertNull(lean.getTable("table_3").get().getComment());
+        assertEquals("varchar", lean.getTable("table_3").get().getColumn("column_2").get().getType().getDatatype());
+        assertTrue(lean.getRelation("table_2_table_0").get().isSymmetric());
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Path corrupt = dir.resolve("corrupt.snapshot");
+        Files.write(corrupt, bytes);
+        IOException e = assertThrows(IOException.class, () -> SchemaSnapshot.load(corrupt));
+        assertTrue(e.getMessage().contains("checksum"));
+    }
+}
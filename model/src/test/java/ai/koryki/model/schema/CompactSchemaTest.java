@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactSchemaTest {
+
+    private static final int TABLES = 5_000;
+    private static final int COLUMNS = 20;
+
+    @Test
+    public void convert() throws IOException {
+
+        Schema schema = schema("tenant", 50);
+        CompactSchema compact = CompactSchema.of(schema);
+
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.writeValueAsString(schema), mapper.writeValueAsString(compact.toSchema()));
+
+        CompactTable t = compact.getTable("TABLE_7").get();
+        assertEquals("table 7 of tenant", t.getComment());
+        assertEquals("column_3", t.getColumn("\"Column_3\"").get().getName());
+        assertFalse(t.getColumn("column_x").isPresent());
+        assertEquals("table_7", compact.getRelation("relation_table_7").get().getStartTable());
+
+        // identifiers and types are shared across tenants
+        CompactSchema other = CompactSchema.of(schema("other", 50));
+        assertSame(t.getName(), other.getTable("table_7").get().getName());
+        assertSame(t.getColumns().get(1).getType(), other.getTables().get(0).getColumns().get(1).getType());
+        assertNotEquals(t.getComment(), other.getTable("table_7").get().getComment());
+
+        // type texts stay with the column
+        Schema commented = schema("commented", 1);
+        commented.getTables().get(0).getColumns().get(1).getType().setComment("tenant specific");
+        CompactColumn c = CompactSchema.of(commented).getTables().get(0).getColumns().get(1);
+        assertSame(t.getColumns().get(1).getType(), c.getType());
+        assertEquals("tenant specific", c.getTypeComment());
+        assertEquals("tenant specific", c.toColumn().getType().getComment());
+        assertNull(t.getColumns().get(1).getTypeComment());
+        assertFalse(t.getColumn(null).isPresent());
+    }
+
+    @Test
+    public void footprint() {
+
+        long base = used();
+        Schema schema = schema("bench", TABLES);
+        long regular = used() - base;
+
+        CompactSchema compact = CompactSchema.of(schema);
+        schema = null;
+        long compacted = used() - base;
+
+        assertEquals(TABLES, compact.getTables().size());
+        System.out.println("tables: " + TABLES + ", schema: " + regular / 1024 + " KB, compact: " + compacted / 1024 + " KB");
+    }
+
+    private static long used() {
+        Runtime r = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return r.totalMemory() - r.freeMemory();
+    }
+
+    /**
+     * Like a schema read from json, every string is a separate instance.
+     */
+    private static Schema schema(String tenant, int tables) {
+        Schema schema = new Schema(tenant, null, "synthetic schema " + tenant);
+        for (int i = 0; i < tables; i++) {
+            Table t = new Table("table_" + i, "table " + i + " of " + tenant, null);
+            for (int c = 0; c < COLUMNS; c++) {
+                Column column = new Column("column_" + c, c == 0 ? "primary key of table " + i : null, null);
+                Type type = new Type(c % 2 == 0 ? "integer" : new String("character varying"));
+                type.setDatatype(c % 2 == 0 ? "int" : new String("varchar"));
+                column.setType(type);
+                column.setNullable(c != 0);
+                column.setPkPos(c == 0 ? 1 : 0);
+                t.addColumn(column);
+            }
+            schema.addTable(t);
+        }
+        for (int i = 0; i < tables; i++) {
+            Relation r = new Relation("relation_table_" + i);
+            r.setStartTable("table_" + i);
+            r.setEndTable("table_" + ((i * 31) % tables));
+            r.addStartColumn("column_1");
+            r.addEndColumn("column_0");
+            schema.addRelation(r);
+        }
+        return schema;
+    }
+}
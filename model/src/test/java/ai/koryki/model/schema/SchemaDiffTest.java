@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaDiffTest {
+
+    @Test
+    public void diff() throws IOException {
+
+        Schema before = schema();
+        Map<String, List<String>> linksBefore = new HashMap<>();
+        linksBefore.put("placed", Collections.singletonList("orders_customers"));
+        linksBefore.put("sold", Collections.singletonList("orders_employees"));
+
+        Schema after = before.clone();
+        after.removeTable(after.getTable("shippers").get());
+        after.getTable("orders").get().addColumn(column("freight"));
+        after.getTable("orders").get().getColumn("order_id").get().setNullable(false);
+        after.addTable(new Table("products"));
+        after.removeRelation(after.getRelation("orders_employees").get());
+        Relation r = new Relation("orders_employees");
+        r.setStartTable("orders");
+        r.setEndTable("employees");
+        r.addStartColumn("salesman_id");
+        after.addRelation(r);
+        Map<String, List<String>> linksAfter = new HashMap<>(linksBefore);
+        linksAfter.put("placed", Arrays.asList("orders_customers", "orders_employees"));
+
+        SchemaDiff diff = SchemaDiff.compute(before, linksBefore, after, linksAfter);
+        assertFalse(diff.isEmpty());
+        assertEquals("[~orders, -shippers, +products]", diff.getTables().toString());
+        assertEquals("[~orders.order_id, +orders.freight]", diff.getColumns().toString());
+        assertEquals("[~orders_employees]", diff.getRelations().toString());
+        assertEquals("[~placed]", diff.getLinks().toString());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("orders", "shippers", "products", "employees", "customers")), diff.getAffectedTables());
+        assertTrue(diff.isAffected("\"Orders\""));
+        assertTrue(SchemaDiff.compute(before, linksBefore, before.clone(), linksBefore).isEmpty());
+
+        // apply keeps indexes in sync
+        Schema target = before.clone();
+        target.getTable("orders");
+        Map<String, List<String>> links = new HashMap<>(linksBefore);
+        diff.apply(target);
+        diff.applyLinks(links);
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(names(after), names(target));
+        assertEquals(mapper.writeValueAsString(after.getRelations()), mapper.writeValueAsString(target.getRelations()));
+        assertFalse(target.getTable("shippers").isPresent());
+        assertTrue(target.getTable("products").isPresent());
+        assertEquals(2, target.getTable("orders").get().getColumns().size());
+        assertSame(r, target.getRelation("orders_employees").get());
+        assertEquals(linksAfter, links);
+        assertTrue(SchemaDiff.compute(target, links, after, linksAfter).isEmpty());
+    }
+
+    private static List<String> names(Schema schema) {
+        return schema.getTables().stream().map(Table::getName).collect(Collectors.toList());
+    }
+
+    private static Column column(String name) {
+        Column c = new Column(name);
+        c.setType(new Type("integer"));
+        return c;
+    }
+
+    private static Schema schema() {
+        Schema schema = new Schema("northwind");
+        Table orders = new Table("orders");
+        orders.addColumn(column("order_id"));
+        schema.addTable(orders);
+        schema.addTable(new Table("customers"));
+        schema.addTable(new Table("employees"));
+        schema.addTable(new Table("shippers"));
+        Relation placed = new Relation("orders_customers");
+        placed.setStartTable("orders");
+        placed.setEndTable("customers");
+        schema.addRelation(placed);
+        Relation sold = new Relation("orders_employees");
+        sold.setStartTable("orders");
+        sold.setEndTable("employees");
+        schema.addRelation(sold);
+        return schema;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaIndexTest {
+
+    private static final int TABLES = 3_000;
+    private static final int RELATIONS = 8_000;
+    private static final int COLUMNS = 20;
+
+    @Test
+    public void lookup() {
+
+        Schema schema = new Schema("s");
+        Table t = new Table("customers");
+        t.addColumn(new Column("company_name"));
+        schema.addTable(t);
+
+        assertSame(t, schema.getTable("customers").get());
+        assertSame(t, schema.getTable("CUSTOMERS").get());
+        assertSame(t, schema.getTable("\"Customers\"").get());
+        assertSame(t.getColumns().get(0), t.getColumn("Company_Name").get());
+        assertFalse(schema.getTable("orders").isPresent());
+
+        // added after the index was built
+        Table orders = new Table("orders");
+        schema.addTable(orders);
+        assertSame(orders, schema.getTable("orders").get());
+
+        // added behind the schema's back
+        Table products = new Table("products");
+        schema.getTables().add(products);
+        assertSame(products, schema.getTable("products").get());
+
+        // first one wins, like a linear scan
+        schema.addTable(new Table("customers"));
+        assertSame(t, schema.getTable("customers").get());
+
+        schema.setTables(new ArrayList<>());
+        assertFalse(schema.getTable("customers").isPresent());
+
+        Relation r = new Relation("customers_orders");
+        schema.addRelation(r);
+        assertSame(r, schema.getRelation("customers_orders").get());
+        assertTrue(schema.clone().getRelation("customers_orders").isPresent());
+    }
+
+    @Test
+    public void benchmark() {
+
+        Schema schema = schema();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < TABLES; i += 7) {
+            names.add("table_" + i);
+        }
+
+        // warm up both
+        linear(schema, names);
+        indexed(schema, names);
+
+        long start = System.nanoTime();
+        int linear = linear(schema, names);
+        long linearNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int indexed = indexed(schema, names);
+        long indexedNanos = System.nanoTime() - start;
+
+        assertEquals(linear, indexed);
+        System.out.println("lookups: " + names.size() * 3 + ", linear: " + linearNanos / 1000 + " us, indexed: " + indexedNanos / 1000 + " us");
+    }
+
+    /**
+     * Lookup as done before the index: stream scans.
+     */
+    private static int linear(Schema schema, List<String> names) {
+        int found = 0;
+        for (String n : names) {
+            Optional<Table> t = schema.getTables().stream().filter(x -> x.getName().equals(n)).findFirst();
+            String col = "column_" + (COLUMNS - 1);
+            found += t.flatMap(x -> x.getColumns().stream().filter(c -> c.getName().equals(col)).findFirst()).isPresent() ? 1 : 0;
+            String rel = "relation_" + n;
+            found += schema.getRelations().stream().filter(r -> r.getName().equals(rel)).findFirst().isPresent() ? 1 : 0;
+        }
+        return found;
+    }
+
+    private static int indexed(Schema schema, List<String> names) {
+        int found = 0;
+        for (String n : names) {
+            Optional<Table> t = schema.getTable(n);
+            String col = "column_" + (COLUMNS - 1);
+            found += t.flatMap(x -> x.getColumn(col)).isPresent() ? 1 : 0;
+            found += schema.getRelation("relation_" + n).isPresent() ? 1 : 0;
+        }
+        return found;
+    }
+
+    private static Schema schema() {
+        Schema schema = new Schema("bench");
+        for (int i = 0; i < TABLES; i++) {
+            Table t = new Table("table_" + i);
+            for (int c = 0; c < COLUMNS; c++) {
+                t.addColumn(new Column("column_" + c));
+            }
+            schema.addTable(t);
+        }
+        for (int i = 0; i < RELATIONS; i++) {
+            Relation r = new Relation("relation_table_" + (i % TABLES) + (i < TABLES ? "" : "_" + i));
+            r.setStartTable("table_" + (i % TABLES));
+            r.setEndTable("table_" + ((i * 31) % TABLES));
+            schema.addRelation(r);
+        }
+        return schema;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025 Johannes Zemlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package ai.koryki.model.schema;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaVersionTest {
+
+    @Test
+    public void overlay() {
+
+        Schema base = new Schema("northwind");
+        Table customers = new Table("customers");
+        Table orders = new Table("orders");
+        Table employees = new Table("employees");
+        base.addTable(customers);
+        base.addTable(orders);
+        base.addTable(employees);
+        Relation placed = relation("orders_customers", "orders", "customers");
+        Relation sold = relation("orders_employees", "orders", "employees");
+        base.addRelation(placed);
+        base.addRelation(sold);
+
+        SchemaVersion root = SchemaVersion.of(base);
+        Table orders2 = new Table("orders");
+        Relation virtual = relation("customers_employees", "customers", "employees");
+        SchemaVersion tenant = root.withoutTable("Employees").withTable(orders2).withRelation(virtual);
+
+        assertEquals(3, tenant.getVersion());
+        assertSame(base, tenant.getBase());
+        assertEquals(3, tenant.getDeltaSize());
+        assertSame(customers, tenant.getTable("customers").get());
+        assertSame(orders2, tenant.getTable("ORDERS").get());
+        assertFalse(tenant.getTable("employees").isPresent());
+        assertSame(placed, tenant.getRelation("orders_customers").get());
+        // relations of hidden tables are hidden too
+        assertFalse(tenant.getRelation("orders_employees").isPresent());
+        assertFalse(tenant.getRelation("customers_employees").isPresent());
+
+        assertEquals(Arrays.asList("customers", "orders"), names(tenant.getSchema()));
+        assertSame(orders2, tenant.getSchema().getTable("orders").get());
+        assertEquals(1, tenant.getRelations().size());
+
+        SchemaVersion restored = tenant.withTable(employees);
+        assertSame(virtual, restored.getRelation("customers_employees").get());
+        assertEquals(Arrays.asList("customers", "orders", "employees"), names(restored.getSchema()));
+        assertEquals(3, restored.getRelations().size());
+
+        // the base and earlier versions are untouched
+        assertSame(employees, root.getTable("employees").get());
+        assertSame(orders, root.getTable("orders").get());
+        assertEquals(2, base.getRelations().size());
+        assertEquals(0, root.getDeltaSize());
+    }
+
+    private static List<String> names(Schema schema) {
+        return schema.getTables().stream().map(Table::getName).collect(Collectors.toList());
+    }
+
+    private static Relation relation(String name, String start, String end) {
+        Relation r = new Relation(name);
+        r.setStartTable(start);
+        r.setEndTable(end);
+        return r;
+    }
+}